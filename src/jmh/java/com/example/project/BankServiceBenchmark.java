@@ -0,0 +1,92 @@
+package com.example.project;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One benchmark per BankService operation against a seeded temp-file database.
+// Table size is the rows parameter, thread count is JMH's -t option (./gradlew jmh -PjmhThreads=8).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BankServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private BankService bankService;
+    private final AtomicLong nextCheck = new AtomicLong();
+    private String sessionToken;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        bankService = new BankService(BenchmarkFixtures.freshDatabase(rows));
+        sessionToken = bankService.openSession(BenchmarkFixtures.userId(0), BenchmarkFixtures.PASSWORD).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bankService.disconnect();
+    }
+
+    private String randomAccount() {
+        return BenchmarkFixtures.accountId(ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    private String randomUser() {
+        int users = Math.max(1, rows / BenchmarkFixtures.ACCOUNTS_PER_USER);
+        return BenchmarkFixtures.userId(ThreadLocalRandom.current().nextInt(users));
+    }
+
+    @Benchmark
+    public Optional<Account> findAccount() throws Exception {
+        return bankService.findAccount(randomAccount());
+    }
+
+    @Benchmark
+    public boolean authenticateUser() throws Exception {
+        return bankService.authenticateUser(randomUser(), BenchmarkFixtures.PASSWORD);
+    }
+
+    // The per-request cost once a session is open, authenticateUser pays the password hash every time
+    @Benchmark
+    public Optional<User> getSessionUser() {
+        return bankService.getSessionUser(sessionToken);
+    }
+
+    @Benchmark
+    public void depositAmount() throws Exception {
+        bankService.depositAmount(randomAccount(), 1);
+    }
+
+    @Benchmark
+    public void transferAmount() throws Exception {
+        bankService.transferAmount(randomAccount(), randomAccount(), 1);
+    }
+
+    // Seeded checks would run out during a long measurement, so each invocation deposits the check it validates
+    @Benchmark
+    public void validateCheck() throws Exception {
+        String checkId = "bench" + nextCheck.incrementAndGet();
+        bankService.depositCheck(checkId, randomAccount(), BenchmarkFixtures.CHECK_AMOUNT);
+        bankService.validateCheck(checkId);
+    }
+
+    @Benchmark
+    public List<Account> getAccountsForUser() throws Exception {
+        return bankService.getAccountsForUser(randomUser());
+    }
+
+    @Benchmark
+    public void getUnvalidatedChecksForAccount(Blackhole blackhole) throws Exception {
+        blackhole.consume(bankService.getUnvalidatedChecksForAccount(randomAccount()));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.project;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Seeds benchmark databases: one user per ten accounts, one pending check per account.
+// A seeded template is kept per row count in the temp directory and copied for every trial,
+// since generating ten million rows takes far longer than copying the file.
+public final class BenchmarkFixtures {
+    public static final int ACCOUNTS_PER_USER = 10;
+    public static final long INITIAL_BALANCE = Money.ofUnits(1_000_000);
+    public static final long CHECK_AMOUNT = Money.ofUnits(10);
+    public static final String PASSWORD = "password";
+
+    private static final int CHUNK = 50_000;
+
+    private BenchmarkFixtures() {
+    }
+
+    public static String userId(long n) {
+        return "user" + n;
+    }
+
+    public static String accountId(long n) {
+        return "acct" + n;
+    }
+
+    public static String checkId(long n) {
+        return "check" + n;
+    }
+
+    // Returns the JDBC url of a fresh copy of a database seeded with the given number of accounts
+    public static String freshDatabase(int rows) throws IOException, SQLException {
+        Path template = Paths.get(System.getProperty("java.io.tmpdir"), "bank-bench-" + rows + ".db");
+        if (!Files.exists(template)) {
+            Path partial = Files.createTempFile("bank-bench-" + rows, ".partial");
+            Files.delete(partial);
+            seed(partial, rows);
+            Files.move(partial, template, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Path copy = Files.createTempFile("bank-bench-" + rows + "-", ".db");
+        Files.copy(template, copy, StandardCopyOption.REPLACE_EXISTING);
+        copy.toFile().deleteOnExit();
+        return "jdbc:sqlite:" + copy;
+    }
+
+    public static void seed(Path file, int rows) throws SQLException {
+        String url = "jdbc:sqlite:" + file;
+        // Let BankService create the schema, then bulk insert with durability switched off
+        new BankService(url).disconnect();
+        try (Connection conn = DriverManager.getConnection(url)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA journal_mode = OFF");
+                stmt.execute("PRAGMA synchronous = OFF");
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement users = conn.prepareStatement(
+                    "INSERT INTO users (id, password, role) VALUES (?, ?, 'client')");
+                 PreparedStatement accounts = conn.prepareStatement(
+                         "INSERT INTO accounts (accountId, balance, ownerId) VALUES (?, ?, ?)");
+                 PreparedStatement checks = conn.prepareStatement(
+                         "INSERT INTO checks (checkId, amount, accountId, isValidated) VALUES (?, ?, ?, false)")) {
+                for (int i = 0; i < rows; i++) {
+                    if (i % ACCOUNTS_PER_USER == 0) {
+                        users.setString(1, userId(i / ACCOUNTS_PER_USER));
+                        users.setString(2, PASSWORD);
+                        users.addBatch();
+                    }
+                    accounts.setString(1, accountId(i));
+                    accounts.setLong(2, INITIAL_BALANCE);
+                    accounts.setString(3, userId(i / ACCOUNTS_PER_USER));
+                    accounts.addBatch();
+                    checks.setString(1, checkId(i));
+                    checks.setLong(2, CHECK_AMOUNT);
+                    checks.setString(3, accountId(i));
+                    checks.addBatch();
+                    if ((i + 1) % CHUNK == 0 || i == rows - 1) {
+                        users.executeBatch();
+                        accounts.executeBatch();
+                        checks.executeBatch();
+                        conn.commit();
+                    }
+                }
+            }
+            conn.setAutoCommit(true);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA journal_mode = WAL");
+                stmt.execute("ANALYZE");
+            }
+        }
+    }
+}
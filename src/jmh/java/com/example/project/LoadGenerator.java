@@ -0,0 +1,281 @@
+package com.example.project;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Drives a seeded database from many threads with a weighted mix of operations, reports throughput and
+// latency percentiles per operation, then checks that no money was created or lost along the way.
+//
+// Usage: ./gradlew loadTest [-PloadArgs="threads=16 seconds=30 rows=100000 mix=deposit:2,withdraw:1,transfer:5,check:2"]
+// Other options: virtual=true to run on virtual threads (Java 21+), ledger=true, cache=true, groupCommit=true,
+// profile=strict|balanced|throughput, hot=0.5 to send that share of deposits and transfer credits to the first
+// account (put in hot mode when the ledger is on), url=jdbc:sqlite:... to reuse a database seeded by
+// BenchmarkFixtures instead of a fresh copy. Exits with status 1 when an invariant fails.
+public class LoadGenerator {
+    private static final long MAX_AMOUNT = Money.ofUnits(1);
+
+    enum Operation {
+        DEPOSIT, WITHDRAW, TRANSFER, CHECK_DEPOSIT, CHECK_VALIDATE
+    }
+
+    interface Action {
+        void run() throws SQLException;
+    }
+
+    private final BankService bankService;
+    private final int accounts;
+    private final int[] mix;
+    private final double hotShare;
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    // Withdrawals and transfers refused for insufficient funds
+    private final Map<Operation, LongAdder> rejected = new EnumMap<>(Operation.class);
+    // Net money added by deposits, withdrawals and cleared checks; transfers must not change the total
+    private final LongAdder expectedDelta = new LongAdder();
+    private final AtomicLong checkSequence = new AtomicLong();
+
+    LoadGenerator(BankService bankService, int accounts, int[] mix, double hotShare) {
+        this.bankService = bankService;
+        this.accounts = accounts;
+        this.mix = mix;
+        this.hotShare = hotShare;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            errors.put(operation, new LongAdder());
+            rejected.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors() * 2)));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "10"));
+        boolean virtual = Boolean.parseBoolean(options.getOrDefault("virtual", "false"));
+        int[] mix = parseMix(options.getOrDefault("mix", "deposit:2,withdraw:1,transfer:5,check:2"));
+        double hotShare = Double.parseDouble(options.getOrDefault("hot", "0"));
+
+        String url = options.get("url");
+        if (url == null) {
+            url = BenchmarkFixtures.freshDatabase(Integer.parseInt(options.getOrDefault("rows", "100000")));
+        }
+        int accounts = countAccounts(url);
+        long totalBefore = totalBalance(url);
+
+        BankConfig config = new BankConfig();
+        config.setUrl(url);
+        config.setLedgerEnabled(Boolean.parseBoolean(options.getOrDefault("ledger", "false")));
+        config.setCacheEnabled(Boolean.parseBoolean(options.getOrDefault("cache", "false")));
+        config.setGroupCommitEnabled(Boolean.parseBoolean(options.getOrDefault("groupCommit", "false")));
+        config.setDurabilityProfile(DurabilityProfile.valueOf(options.getOrDefault("profile", "STRICT").toUpperCase()));
+        if (hotShare > 0 && config.isLedgerEnabled()) {
+            config.setHotAccounts(List.of(BenchmarkFixtures.accountId(0)));
+        }
+        BankService bankService = new BankService(config);
+
+        LoadGenerator generator = new LoadGenerator(bankService, accounts, mix, hotShare);
+        System.out.println("Running " + threads + (virtual ? " virtual" : " platform") + " threads for "
+                + seconds + "s against " + accounts + " accounts");
+        long elapsed = generator.run(threads, virtual, TimeUnit.SECONDS.toNanos(seconds));
+        bankService.disconnect();
+
+        generator.report(elapsed);
+        boolean ok = generator.verify(url, totalBefore);
+        System.exit(ok ? 0 : 1);
+    }
+
+    // Runs the workers until the deadline and returns the elapsed time in nanoseconds
+    long run(int threads, boolean virtual, long durationNanos) throws Exception {
+        ExecutorService executor = newExecutor(threads, virtual);
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    step();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        return elapsed;
+    }
+
+    private void step() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Operation operation = pick(random.nextInt(mix[mix.length - 1]));
+        String accountId = BenchmarkFixtures.accountId(random.nextInt(accounts));
+        long amount = 1 + random.nextLong(MAX_AMOUNT);
+        switch (operation) {
+            case DEPOSIT:
+                String creditedId = creditTarget(random, accountId);
+                if (timed(Operation.DEPOSIT, () -> bankService.depositAmount(creditedId, amount))) {
+                    expectedDelta.add(amount);
+                }
+                break;
+            case WITHDRAW:
+                if (timed(Operation.WITHDRAW, () -> bankService.withdrawAmount(accountId, amount))) {
+                    expectedDelta.add(-amount);
+                }
+                break;
+            case TRANSFER:
+                String toAccountId = creditTarget(random, BenchmarkFixtures.accountId(random.nextInt(accounts)));
+                timed(Operation.TRANSFER, () -> bankService.transferAmount(accountId, toAccountId, amount));
+                break;
+            default:
+                String checkId = "load-check" + checkSequence.incrementAndGet();
+                if (timed(Operation.CHECK_DEPOSIT, () -> bankService.depositCheck(checkId, accountId, amount))
+                        && timed(Operation.CHECK_VALIDATE, () -> bankService.validateCheck(checkId))) {
+                    expectedDelta.add(amount);
+                }
+                break;
+        }
+    }
+
+    private String creditTarget(ThreadLocalRandom random, String accountId) {
+        return hotShare > 0 && random.nextDouble() < hotShare ? BenchmarkFixtures.accountId(0) : accountId;
+    }
+
+    private Operation pick(int roll) {
+        // mix holds cumulative weights of deposit, withdraw, transfer and check
+        if (roll < mix[0]) {
+            return Operation.DEPOSIT;
+        } else if (roll < mix[1]) {
+            return Operation.WITHDRAW;
+        } else if (roll < mix[2]) {
+            return Operation.TRANSFER;
+        }
+        return Operation.CHECK_DEPOSIT;
+    }
+
+    private boolean timed(Operation operation, Action action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+            return true;
+        } catch (InsufficientFundsException e) {
+            // A refused transfer is an expected business outcome, not a failure of the service
+            rejected.get(operation).increment();
+            return false;
+        } catch (SQLException e) {
+            errors.get(operation).increment();
+            return false;
+        } finally {
+            latencies.get(operation).record(System.nanoTime() - start);
+        }
+    }
+
+    void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+        System.out.println(String.format("%-15s %10s %10s %10s %10s %10s %10s %8s %8s",
+                "operation", "count", "ops/s", "p50 us", "p99 us", "p999 us", "max us", "errors", "rejected"));
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = latencies.get(operation);
+            total += histogram.getCount();
+            System.out.println(String.format("%-15s %10d %10.0f %10.1f %10.1f %10.1f %10.1f %8d %8d",
+                    operation.name().toLowerCase(), histogram.getCount(), histogram.getCount() / seconds,
+                    histogram.getPercentile(50) / 1e3, histogram.getPercentile(99) / 1e3,
+                    histogram.getPercentile(99.9) / 1e3, histogram.getMax() / 1e3, errors.get(operation).sum(),
+                    rejected.get(operation).sum()));
+        }
+        System.out.println(String.format("total: %d operations in %.1fs, %.0f ops/s", total, seconds, total / seconds));
+        RetryPolicy retryPolicy = bankService.getRetryPolicy();
+        System.out.println("busy errors: " + retryPolicy.getBusyErrors() + ", retries: " + retryPolicy.getRetries());
+    }
+
+    // Checks the database after the run: money is conserved. Withdrawals are not refused for insufficient funds, so
+    // balances may legitimately end up negative
+    boolean verify(String url, long totalBefore) throws SQLException {
+        long expected = totalBefore + expectedDelta.sum();
+        long actual = totalBalance(url);
+        if (actual != expected) {
+            System.out.println("INVARIANT FAILED: total balance is " + Money.format(actual)
+                    + ", expected " + Money.format(expected));
+            return false;
+        }
+        System.out.println("Invariant holds: total balance " + Money.format(actual));
+        return true;
+    }
+
+    private static ExecutorService newExecutor(int threads, boolean virtual) {
+        if (virtual) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.out.println("Virtual threads are not available on this JVM, using platform threads");
+            }
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    private static int countAccounts(String url) throws SQLException {
+        return (int) queryLong(url, "SELECT COUNT(*) FROM accounts");
+    }
+
+    private static long totalBalance(String url) throws SQLException {
+        return queryLong(url, "SELECT COALESCE(SUM(balance), 0) FROM accounts");
+    }
+
+    private static long queryLong(String url, String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    // Turns "deposit:2,withdraw:1,transfer:5,check:2" into cumulative weights
+    static int[] parseMix(String spec) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.split(":");
+            weights.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+        }
+        String[] names = {"deposit", "withdraw", "transfer", "check"};
+        int[] cumulative = new int[names.length];
+        int sum = 0;
+        for (int i = 0; i < names.length; i++) {
+            sum += weights.getOrDefault(names[i], 0);
+            cumulative[i] = sum;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("Operation mix must have a positive weight: " + spec);
+        }
+        return cumulative;
+    }
+}
@@ -11,6 +11,6 @@ import lombok.Setter;
 @AllArgsConstructor
 public class Account {
     private String accountId;
-    private Float balance;
+    private long balance;
     private String ownerId;
 }
@@ -0,0 +1,480 @@
+package com.example.project;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+// In-memory copy of the accounts table serving balance operations at memory speed.
+// Accounts are addressed by an int slot, balances live in a primitive array guarded by striped locks,
+// and changed slots are written back to SQLite by a background flusher.
+//
+// Every flush writes a consistent cut of the ledger in one transaction: mutations hold the epoch read lock,
+// the flusher captures dirty balances under the epoch write lock, and flushes never overlap. After a crash
+// the database therefore holds the state of the last completed flush, never half of a transfer.
+//
+// Hot accounts, which take a large share of all credits, keep their credits in padded sub-balance cells picked
+// by thread, so concurrent credits neither wait on the account's stripe lock nor write the same cache line.
+// Debits and reads fold the cells back into the balance under the stripe lock first, so they always see the
+// full total, and every flush folds them too.
+public class AccountLedger implements AutoCloseable {
+    private static final int STRIPES = 64;
+    // Longs per sub-balance cell, one cell per 64 byte cache line
+    private static final int CELL_PADDING = 8;
+
+    private final BankService bankService;
+    private final int maxDirtyAccounts;
+    private final int hotCells;
+    private final Set<String> hotAccountIds = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final ReentrantReadWriteLock epoch = new ReentrantReadWriteLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private final AtomicInteger dirtyCount = new AtomicInteger();
+
+    // Resized only under the epoch write lock
+    private String[] accountIds = new String[1024];
+    private String[] ownerIds = new String[1024];
+    private long[] balances = new long[1024];
+    private AtomicIntegerArray dirtyFlags = new AtomicIntegerArray(1024);
+    // Sub-balances of hot accounts, null for the others
+    private AtomicLongArray[] credits = new AtomicLongArray[1024];
+    private int[] dirtySlots = new int[1024];
+    private int size;
+
+    AccountLedger(BankService bankService, long flushIntervalMillis, int maxDirtyAccounts, int hotCells)
+            throws SQLException {
+        this.bankService = bankService;
+        this.maxDirtyAccounts = Math.max(1, maxDirtyAccounts);
+        // A power of two so a thread's cell is a mask away
+        this.hotCells = Integer.highestOneBit(Math.max(1, hotCells - 1)) << 1;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        load();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-ledger-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public Optional<Account> find(String accountId) {
+        epoch.readLock().lock();
+        try {
+            Integer slot = slots.get(accountId);
+            if (slot == null) {
+                return Optional.empty();
+            }
+            ReentrantLock stripe = stripeFor(slot);
+            stripe.lock();
+            try {
+                fold(slot);
+                return Optional.of(new Account(accountIds[slot], balances[slot], ownerIds[slot]));
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            epoch.readLock().unlock();
+        }
+    }
+
+    public void deposit(String accountId, long amount) {
+        apply(accountId, amount);
+    }
+
+    public void withdraw(String accountId, long amount) {
+        apply(accountId, -amount);
+    }
+
+    public void transfer(String fromAccountId, String toAccountId, long amount) throws SQLException {
+        epoch.readLock().lock();
+        try {
+            Integer from = slots.get(fromAccountId);
+            Integer to = slots.get(toAccountId);
+            if (from == null || to == null) {
+                throw new SQLException("Transfer cannot be completed: accounts validation failed or insufficient funds.");
+            }
+            // A hot target is credited through its cells, only the source's stripe is needed then
+            boolean creditCells = credits[to] != null && amount > 0;
+            // Lock stripes in a fixed order so opposite transfers cannot deadlock. The order is by stripe, not by
+            // slot: slots far apart share stripes
+            int fromStripe = from & (STRIPES - 1);
+            int toStripe = creditCells ? fromStripe : to & (STRIPES - 1);
+            ReentrantLock first = stripes[Math.min(fromStripe, toStripe)];
+            ReentrantLock second = stripes[Math.max(fromStripe, toStripe)];
+            first.lock();
+            second.lock();
+            try {
+                fold(from);
+                if (balances[from] < amount) {
+                    throw new InsufficientFundsException();
+                }
+                balances[from] -= amount;
+                markDirty(from);
+                if (creditCells) {
+                    credit(to, amount);
+                } else {
+                    balances[to] += amount;
+                    markDirty(to);
+                }
+            } finally {
+                second.unlock();
+                first.unlock();
+            }
+        } finally {
+            epoch.readLock().unlock();
+        }
+        flushIfLagging();
+    }
+
+    // Balance as currently held in memory, or the given fallback when the account is not in the ledger
+    public long balanceOr(String accountId, long fallback) {
+        return find(accountId).map(account -> account.getBalance()).orElse(fallback);
+    }
+
+    // Switches an account into or out of hot mode while the ledger keeps serving it. Returns false when the
+    // account is unknown, its hot setting is then only kept for when it gets loaded
+    public boolean setHot(String accountId, boolean hot) {
+        epoch.writeLock().lock();
+        try {
+            if (hot) {
+                hotAccountIds.add(accountId);
+            } else {
+                hotAccountIds.remove(accountId);
+            }
+            Integer slot = slots.get(accountId);
+            if (slot == null) {
+                return false;
+            }
+            fold(slot);
+            credits[slot] = hot ? new AtomicLongArray(hotCells * CELL_PADDING) : null;
+            return true;
+        } finally {
+            epoch.writeLock().unlock();
+        }
+    }
+
+    public Set<String> getHotAccounts() {
+        return Set.copyOf(hotAccountIds);
+    }
+
+    public int getDirtyCount() {
+        return dirtyCount.get();
+    }
+
+    // Writes every pending change to SQLite and returns once it is committed
+    public void flush() throws SQLException {
+        flushLock.lock();
+        try {
+            Cut cut;
+            epoch.writeLock().lock();
+            try {
+                cut = captureDirty();
+            } finally {
+                epoch.writeLock().unlock();
+            }
+            try {
+                write(cut);
+            } catch (SQLException | RuntimeException e) {
+                epoch.readLock().lock();
+                try {
+                    restoreDirty(cut);
+                } finally {
+                    epoch.readLock().unlock();
+                }
+                throw e;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Runs SQL that changes accounts behind the ledger's back: pending changes are flushed first, mutations are
+    // paused while the work runs, and the touched accounts are reloaded afterwards (all of them when null).
+    // If the pending changes cannot be flushed the call does not run, since reloading would lose them
+    <T> T exclusive(SqlCall<T> call, Function<T, Collection<String>> touched) throws SQLException {
+        flushLock.lock();
+        try {
+            epoch.writeLock().lock();
+            try {
+                Cut cut = captureDirty();
+                try {
+                    write(cut);
+                } catch (SQLException | RuntimeException e) {
+                    restoreDirty(cut);
+                    throw e;
+                }
+                T result = call.call();
+                Collection<String> accountIdsToReload = touched.apply(result);
+                if (accountIdsToReload == null) {
+                    load();
+                } else {
+                    reload(accountIdsToReload);
+                }
+                return result;
+            } finally {
+                epoch.writeLock().unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void apply(String accountId, long delta) {
+        epoch.readLock().lock();
+        try {
+            Integer slot = slots.get(accountId);
+            if (slot == null) {
+                // Same as an UPDATE matching no row
+                return;
+            }
+            if (credits[slot] != null && delta > 0) {
+                credit(slot, delta);
+            } else {
+                ReentrantLock stripe = stripeFor(slot);
+                stripe.lock();
+                try {
+                    fold(slot);
+                    balances[slot] += delta;
+                    markDirty(slot);
+                } finally {
+                    stripe.unlock();
+                }
+            }
+        } finally {
+            epoch.readLock().unlock();
+        }
+        flushIfLagging();
+    }
+
+    // Must hold the epoch read lock, the account's stripe is not needed
+    private void credit(int slot, long amount) {
+        AtomicLongArray cells = credits[slot];
+        int cell = (int) (mix(Thread.currentThread().getId()) & (hotCells - 1));
+        cells.getAndAdd(cell * CELL_PADDING, amount);
+        // Skips the flag's cache line write once the account is already waiting for the flusher
+        if (dirtyFlags.get(slot) == 0) {
+            markDirty(slot);
+        }
+    }
+
+    // Moves the credits held in a hot account's cells into its balance. Must hold the account's stripe lock or the
+    // epoch write lock; taking each cell with getAndSet cannot lose a credit added concurrently
+    private void fold(int slot) {
+        AtomicLongArray cells = credits[slot];
+        if (cells == null) {
+            return;
+        }
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += CELL_PADDING) {
+            if (cells.get(i) != 0) {
+                sum += cells.getAndSet(i, 0);
+            }
+        }
+        balances[slot] += sum;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        return value ^ (value >>> 33);
+    }
+
+    private void markDirty(int slot) {
+        if (dirtyFlags.compareAndSet(slot, 0, 1)) {
+            dirtySlots[dirtyCount.getAndIncrement()] = slot;
+        }
+    }
+
+    private void flushIfLagging() {
+        // Writers pay for the flush themselves once the flusher falls too far behind
+        if (dirtyCount.get() >= maxDirtyAccounts) {
+            flushQuietly();
+        }
+    }
+
+    // The changes stay dirty and the next flush retries them, failures are counted as flushLedger errors
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            bankService.getMetrics().recordError(BankOperation.FLUSH_LEDGER, e);
+        }
+    }
+
+    // Must hold the epoch write lock. The slots are clean from here on: restoreDirty must follow a failed write
+    private Cut captureDirty() {
+        int count = dirtyCount.get();
+        int[] cutSlots = Arrays.copyOf(dirtySlots, count);
+        String[] ids = new String[count];
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            int slot = cutSlots[i];
+            fold(slot);
+            ids[i] = accountIds[slot];
+            values[i] = balances[slot];
+            dirtyFlags.set(slot, 0);
+        }
+        dirtyCount.set(0);
+        return new Cut(cutSlots, ids, values);
+    }
+
+    // Marks the slots of a cut that was not written dirty again, the next flush writes their current balance.
+    // Must hold the epoch lock and flushLock, so no slot was reassigned since the cut was taken
+    private void restoreDirty(Cut cut) {
+        for (int i = 0; i < cut.slots.length; i++) {
+            if (cut.accountIds[i] != null) {
+                markDirty(cut.slots[i]);
+            }
+        }
+    }
+
+    private void write(Cut cut) throws SQLException {
+        String[] ids = cut.accountIds;
+        long[] values = cut.balances;
+        if (ids.length == 0) {
+            return;
+        }
+        String sql = "UPDATE accounts SET balance = ? WHERE accountId = ?";
+        bankService.inWriteTransaction(conn -> {
+            PreparedStatement pstmt = conn.prepare(sql);
+            try {
+                for (int i = 0; i < ids.length; i++) {
+                    if (ids[i] == null) {
+                        continue;
+                    }
+                    pstmt.setLong(1, values[i]);
+                    pstmt.setString(2, ids[i]);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            } finally {
+                pstmt.clearBatch();
+            }
+            return null;
+        });
+    }
+
+    // The current contents are only replaced once the whole table has been read
+    private void load() throws SQLException {
+        String sql = "SELECT accountId, balance, ownerId FROM accounts";
+        List<Account> accounts = bankService.inWriteTransaction(conn -> {
+            List<Account> rows = new ArrayList<>();
+            PreparedStatement pstmt = conn.prepare(sql);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Account(rs.getString("accountId"), rs.getLong("balance"), rs.getString("ownerId")));
+                }
+            }
+            return rows;
+        });
+        slots.clear();
+        Arrays.fill(accountIds, null);
+        Arrays.fill(credits, null);
+        size = 0;
+        for (Account account : accounts) {
+            put(account.getAccountId(), account.getBalance(), account.getOwnerId());
+        }
+    }
+
+    private void reload(Collection<String> ids) throws SQLException {
+        String sql = "SELECT balance, ownerId FROM accounts WHERE accountId = ?";
+        bankService.inWriteTransaction(conn -> {
+            PreparedStatement pstmt = conn.prepare(sql);
+            for (String accountId : ids) {
+                pstmt.setString(1, accountId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        put(accountId, rs.getLong("balance"), rs.getString("ownerId"));
+                    } else {
+                        Integer slot = slots.remove(accountId);
+                        if (slot != null) {
+                            accountIds[slot] = null;
+                            credits[slot] = null;
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    // Must hold the epoch write lock or be loading
+    private void put(String accountId, long balance, String ownerId) {
+        Integer slot = slots.get(accountId);
+        if (slot == null) {
+            if (size == accountIds.length) {
+                grow();
+            }
+            slot = size++;
+        }
+        accountIds[slot] = accountId;
+        ownerIds[slot] = ownerId;
+        balances[slot] = balance;
+        // Reloaded balances already include every folded credit
+        credits[slot] = hotAccountIds.contains(accountId) ? new AtomicLongArray(hotCells * CELL_PADDING) : null;
+        slots.put(accountId, slot);
+    }
+
+    private void grow() {
+        int capacity = accountIds.length * 2;
+        accountIds = Arrays.copyOf(accountIds, capacity);
+        ownerIds = Arrays.copyOf(ownerIds, capacity);
+        balances = Arrays.copyOf(balances, capacity);
+        credits = Arrays.copyOf(credits, capacity);
+        dirtySlots = Arrays.copyOf(dirtySlots, capacity);
+        AtomicIntegerArray flags = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < dirtyFlags.length(); i++) {
+            flags.set(i, dirtyFlags.get(i));
+        }
+        dirtyFlags = flags;
+    }
+
+    private ReentrantLock stripeFor(int slot) {
+        return stripes[slot & (STRIPES - 1)];
+    }
+
+    // Dirty account ids and their balances captured at one point in time
+    private static final class Cut {
+        private final int[] slots;
+        private final String[] accountIds;
+        private final long[] balances;
+
+        private Cut(int[] slots, String[] accountIds, long[] balances) {
+            this.slots = slots;
+            this.accountIds = accountIds;
+            this.balances = balances;
+        }
+    }
+}
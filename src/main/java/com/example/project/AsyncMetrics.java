@@ -0,0 +1,59 @@
+package com.example.project;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class AsyncMetrics {
+    private final LongAdder readsSubmitted = new LongAdder();
+    private final LongAdder writesSubmitted = new LongAdder();
+    private final LongAdder writesCompleted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder enqueueWaitNanos = new LongAdder();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    void recordRead() {
+        readsSubmitted.increment();
+    }
+
+    void recordWriteEnqueued(long waitNanos, int queueDepth) {
+        writesSubmitted.increment();
+        enqueueWaitNanos.add(waitNanos);
+        if (queueDepth > maxQueueDepth.get()) {
+            maxQueueDepth.accumulateAndGet(queueDepth, Math::max);
+        }
+    }
+
+    void recordWriteCompleted() {
+        writesCompleted.increment();
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    public long getReadsSubmitted() {
+        return readsSubmitted.sum();
+    }
+
+    public long getWritesSubmitted() {
+        return writesSubmitted.sum();
+    }
+
+    public long getWritesCompleted() {
+        return writesCompleted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    // Time callers spent blocked on a full write queue
+    public long getAverageEnqueueWaitNanos() {
+        long count = writesSubmitted.sum();
+        return count == 0 ? 0 : enqueueWaitNanos.sum() / count;
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.project;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Read-through cache for accounts, users and per-owner account lists.
+// Every invalidation bumps a generation counter, and a value loaded from the database is only cached
+// when no invalidation happened since its read began, so a slow reader cannot cache a stale row.
+// Cached objects are mutable Lombok beans, callers always receive copies.
+public class BankCache {
+    private final BoundedCache<String, Account> accounts;
+    private final BoundedCache<String, User> users;
+    private final BoundedCache<String, List<Account>> accountsByOwner;
+    // Owner of every account held in a cached list, used to find the list to drop when the account changes
+    private final Map<String, String> ownerIndex = new ConcurrentHashMap<>();
+    private long generation;
+
+    public BankCache(int maxEntries, long ttlMillis) {
+        this.accounts = new BoundedCache<>(maxEntries, ttlMillis);
+        this.users = new BoundedCache<>(maxEntries, ttlMillis);
+        this.accountsByOwner = new BoundedCache<>(maxEntries, ttlMillis, (ownerId, list) -> {
+            for (Account account : list) {
+                ownerIndex.remove(account.getAccountId(), ownerId);
+            }
+        });
+    }
+
+    public synchronized long beginRead() {
+        return generation;
+    }
+
+    // Returns null on a miss
+    public Account getAccount(String accountId) {
+        Account account = accounts.get(accountId);
+        return account == null ? null : copy(account);
+    }
+
+    public synchronized void putAccount(Account account, long readGeneration) {
+        if (readGeneration == generation) {
+            accounts.put(account.getAccountId(), copy(account));
+        }
+    }
+
+    public User getUser(String userId) {
+        User user = users.get(userId);
+        return user == null ? null : new User(user.getId(), user.getPassword(), user.getRole());
+    }
+
+    public synchronized void putUser(User user, long readGeneration) {
+        if (readGeneration == generation) {
+            users.put(user.getId(), new User(user.getId(), user.getPassword(), user.getRole()));
+        }
+    }
+
+    public List<Account> getAccountsForUser(String ownerId) {
+        List<Account> cached = accountsByOwner.get(ownerId);
+        return cached == null ? null : copy(cached);
+    }
+
+    public synchronized void putAccountsForUser(String ownerId, List<Account> list, long readGeneration) {
+        if (readGeneration == generation) {
+            List<Account> copies = copy(list);
+            accountsByOwner.put(ownerId, copies);
+            for (Account account : copies) {
+                ownerIndex.put(account.getAccountId(), ownerId);
+            }
+        }
+    }
+
+    public synchronized void invalidateAccount(String accountId) {
+        generation++;
+        accounts.remove(accountId);
+        String ownerId = ownerIndex.get(accountId);
+        if (ownerId != null) {
+            accountsByOwner.remove(ownerId);
+        }
+    }
+
+    public synchronized void invalidateAccounts(Collection<String> accountIds) {
+        for (String accountId : accountIds) {
+            invalidateAccount(accountId);
+        }
+    }
+
+    public synchronized void invalidateOwner(String ownerId) {
+        generation++;
+        accountsByOwner.remove(ownerId);
+    }
+
+    public synchronized void invalidateUser(String userId) {
+        generation++;
+        users.remove(userId);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        accounts.clear();
+        users.clear();
+        accountsByOwner.clear();
+    }
+
+    public CacheStats getAccountStats() {
+        return accounts.getStats();
+    }
+
+    public CacheStats getUserStats() {
+        return users.getStats();
+    }
+
+    public CacheStats getAccountsByOwnerStats() {
+        return accountsByOwner.getStats();
+    }
+
+    private static Account copy(Account account) {
+        return new Account(account.getAccountId(), account.getBalance(), account.getOwnerId());
+    }
+
+    private static List<Account> copy(List<Account> list) {
+        List<Account> copies = new ArrayList<>(list.size());
+        for (Account account : list) {
+            copies.add(copy(account));
+        }
+        return copies;
+    }
+}
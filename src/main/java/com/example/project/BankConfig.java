@@ -0,0 +1,84 @@
+package com.example.project;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BankConfig {
+    private String url = "jdbc:sqlite:bank.db";
+    // Number of read connections kept by the pool, the writer is always a single extra connection
+    private int readerPoolSize = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private long checkoutTimeoutMillis = 5000;
+    private int busyTimeoutMillis = 5000;
+    // Pragmas applied to every connection, STRICT keeps every commit durable
+    private DurabilityProfile durabilityProfile = DurabilityProfile.STRICT;
+    // Background WAL checkpoints, 0 disables them and leaves checkpointing to SQLite's autocheckpoint
+    private long walCheckpointIntervalMillis = 1000;
+    // The WAL is truncated by the checkpointer once it grows past this size
+    private long walSizeLimitBytes = 64L * 1024 * 1024;
+    // Prepared statements kept per connection before the least recently used one is closed
+    private int statementCacheSize = 32;
+    // Retries for transactions that still find the database busy after busyTimeoutMillis
+    private int maxRetryAttempts = 5;
+    private long initialRetryBackoffMillis = 2;
+    private long maxRetryBackoffMillis = 100;
+    // Rows written per transaction by the bulk APIs
+    private int batchChunkSize = 1000;
+    // Rows BulkLoader inserts per transaction
+    private int bulkTransactionRows = 50000;
+    // Rows the driver fetches per round trip when streaming results
+    private int streamFetchSize = 500;
+    // Serves balance operations from an in-memory ledger written back to SQLite in the background
+    private boolean ledgerEnabled = false;
+    private long ledgerFlushIntervalMillis = 50;
+    // Writers flush synchronously once this many accounts are waiting to be persisted
+    private int ledgerMaxDirtyAccounts = 10000;
+    // Ledger accounts taking most of the credits, such as merchant or settlement accounts, spread their credits over
+    // hotAccountCells sub-balances. More can be switched on and off at runtime with BankService.setHotAccount
+    private List<String> hotAccounts = new ArrayList<>();
+    private int hotAccountCells = 16;
+    // Read-through cache for findAccount, findUser and getAccountsForUser. Off by default because changes made
+    // by other processes sharing the database file cannot invalidate it
+    private boolean cacheEnabled = false;
+    private int cacheMaxEntries = 10000;
+    private long cacheTtlMillis = 30000;
+    // PBKDF2 work factor for stored passwords, raising it rehashes existing passwords as their users log in.
+    // Capped at PasswordHasher.MAX_ITERATIONS
+    private int passwordHashIterations = 310000;
+    // Sessions opened by openSession, kept in memory only: a restart logs everyone out
+    private int sessionMaxEntries = 100000;
+    private long sessionTtlMillis = 30 * 60 * 1000;
+    // Publishes BankMetrics as com.example.project:type=BankService,name=<jmxName>, names must be unique per JVM
+    private boolean jmxEnabled = false;
+    private String jmxName = "bank";
+    // Mutations BankServiceAsync queues for its writer thread, and how long a caller waits for room before
+    // the call is rejected
+    private int asyncWriteQueueCapacity = 10000;
+    private long asyncEnqueueTimeoutMillis = 1000;
+    // Commits concurrent deposits, withdrawals and transfers together: a group closes groupCommitWindowMicros after
+    // its first mutation or once it holds groupCommitMaxSize mutations. Ignored for balances held by the ledger
+    private boolean groupCommitEnabled = false;
+    private long groupCommitWindowMicros = 1000;
+    private int groupCommitMaxSize = 256;
+    // Idempotency keys are kept for idempotencyRetentionMillis and purged every idempotencyExpiryIntervalMillis
+    // (0 leaves purging to expireIdempotencyKeys). Recent keys are cached, all live keys go into a Bloom filter
+    private long idempotencyRetentionMillis = 24L * 60 * 60 * 1000;
+    private long idempotencyExpiryIntervalMillis = 60000;
+    private int idempotencyCacheEntries = 10000;
+    private long idempotencyBloomBits = 8L * 1024 * 1024;
+    // BankHttpServer: listening address (loopback unless opened up on purpose) and port (0 picks a free one),
+    // requests running at once, how long a request waits for a free slot before it is answered 503, and how long
+    // shutdown waits for running requests
+    private String httpBindAddress = "127.0.0.1";
+    private int httpPort = 8080;
+    private int httpBacklog = 1024;
+    private int httpMaxConcurrency = 256;
+    private long httpQueueTimeoutMillis = 1000;
+    private long httpShutdownTimeoutMillis = 30000;
+    // BatchEngine: workers per stage, key ranges planned per worker, and accounts per chunk transaction
+    private int batchParallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private int batchRangesPerWorker = 4;
+    private int batchJobChunkRows = 1000;
+}
@@ -0,0 +1,59 @@
+package com.example.project;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Runs BankHttpServer until the process is stopped. Ctrl-C or SIGTERM drains running requests, then flushes and
+// closes the BankService.
+//
+// Usage: ./gradlew run [--args="port=8080 url=jdbc:sqlite:bank.db maxConcurrency=256"]
+// Other options: bind=127.0.0.1, adminPassword=<password> (creates the admin user if it is missing), ledger=true,
+// cache=true, groupCommit=true, profile=strict|balanced|throughput
+public class BankConsoleApp {
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        BankConfig config = new BankConfig();
+        config.setUrl(options.getOrDefault("url", config.getUrl()));
+        config.setHttpBindAddress(options.getOrDefault("bind", config.getHttpBindAddress()));
+        config.setHttpPort(Integer.parseInt(options.getOrDefault("port", String.valueOf(config.getHttpPort()))));
+        config.setHttpMaxConcurrency(Integer.parseInt(options.getOrDefault("maxConcurrency",
+                String.valueOf(config.getHttpMaxConcurrency()))));
+        config.setLedgerEnabled(Boolean.parseBoolean(options.getOrDefault("ledger", "false")));
+        config.setCacheEnabled(Boolean.parseBoolean(options.getOrDefault("cache", "false")));
+        config.setGroupCommitEnabled(Boolean.parseBoolean(options.getOrDefault("groupCommit", "false")));
+        config.setDurabilityProfile(DurabilityProfile.valueOf(options.getOrDefault("profile", "STRICT").toUpperCase()));
+
+        BankService bankService = new BankService(config);
+        String adminPassword = options.get("adminPassword");
+        try {
+            if (adminPassword != null && bankService.findUser("admin").isEmpty()) {
+                bankService.addUser(new User("admin", adminPassword, "admin"));
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        BankHttpServer server = new BankHttpServer(bankService, config);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Shutting down, draining running requests");
+            server.close();
+            bankService.disconnect();
+        }, "bank-shutdown"));
+        server.start();
+        System.out.println("Bank API listening on " + config.getHttpBindAddress() + ":" + server.getPort());
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+}
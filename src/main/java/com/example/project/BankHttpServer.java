@@ -0,0 +1,472 @@
+package com.example.project;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// JSON over HTTP in front of a BankService, on the JDK's built-in server. Every request runs on its own virtual
+// thread (platform threads before Java 21) and at most httpMaxConcurrency run at once: the others wait up to
+// httpQueueTimeoutMillis for a slot and are then answered 503. Connections are kept alive between requests.
+// List endpoints stream their rows straight from the cursor as a chunked JSON array.
+//
+// Every request but GET /health and the /sessions endpoints needs "Authorization: Bearer <token>" with a token from
+// POST /sessions. Clients only reach their own user and accounts, and only transfer from accounts they own; the admin
+// role reaches everything and is needed to create users and change roles.
+//
+// Amounts are decimal numbers of units, such as 12.34, converted to cents with Money at this edge.
+public class BankHttpServer implements AutoCloseable {
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String ADMIN = "admin";
+
+    private final BankService bankService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long queueTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+    private volatile boolean draining;
+
+    public BankHttpServer(BankService bankService, BankConfig config) throws IOException {
+        this.bankService = bankService;
+        this.maxConcurrency = Math.max(1, config.getHttpMaxConcurrency());
+        this.permits = new Semaphore(maxConcurrency);
+        this.queueTimeoutMillis = config.getHttpQueueTimeoutMillis();
+        this.shutdownTimeoutMillis = config.getHttpShutdownTimeoutMillis();
+        this.server = HttpServer.create(new InetSocketAddress(config.getHttpBindAddress(), config.getHttpPort()),
+                config.getHttpBacklog());
+        this.executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // The bound port, useful when httpPort is 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public int getInFlight() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    // Graceful shutdown: new requests are refused, requests already running finish within httpShutdownTimeoutMillis,
+    // then connections are closed. Writes accepted before the call are committed once it returns
+    @Override
+    public void close() {
+        draining = true;
+        try {
+            // Waits for the running requests to give their permits back
+            if (permits.tryAcquire(maxConcurrency, shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                permits.release(maxConcurrency);
+            } else {
+                System.out.println("Stopping with " + getInFlight() + " requests still running");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Virtual threads are not available on this JVM, using platform threads");
+        }
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "bank-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (draining) {
+                exchange.getResponseHeaders().set("Connection", "close");
+                send(exchange, 503, Json.error("Server is shutting down"));
+                return;
+            }
+            if (!permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, Json.error("Too many concurrent requests"));
+                return;
+            }
+            try {
+                // close() may have started while this request waited for its permit
+                if (draining) {
+                    exchange.getResponseHeaders().set("Connection", "close");
+                    send(exchange, 503, Json.error("Server is shutting down"));
+                    return;
+                }
+                route(exchange);
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+        try {
+            Optional<User> caller = caller(exchange);
+            // Opening a session is the login, reading or closing one only needs the token itself
+            boolean open = path[0].equals("health") || path[0].equals("sessions");
+            if (!open && caller.isEmpty()) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                fail(exchange, 401, "A session token is required");
+                return;
+            }
+            switch (path[0]) {
+                case "health":
+                    send(exchange, 200, "{\"status\":\"ok\",\"inFlight\":" + getInFlight() + "}");
+                    return;
+                case "users":
+                    users(exchange, method, path, caller);
+                    return;
+                case "sessions":
+                    sessions(exchange, method, path);
+                    return;
+                case "accounts":
+                    accounts(exchange, method, path, caller);
+                    return;
+                case "transfers":
+                    transfers(exchange, method, path, caller);
+                    return;
+                case "checks":
+                    checks(exchange, method, path, caller);
+                    return;
+                default:
+                    notFound(exchange);
+            }
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            fail(exchange, 400, e.getMessage());
+        } catch (SQLException e) {
+            fail(exchange, RetryPolicy.isBusy(e) ? 503 : 409, e.getMessage());
+        } catch (RuntimeException e) {
+            fail(exchange, 500, e.getMessage());
+        }
+    }
+
+    // The user of the bearer token, if it names a live session
+    private Optional<User> caller(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return Optional.empty();
+        }
+        return bankService.getSessionUser(authorization.substring(7).trim());
+    }
+
+    private static boolean isAdmin(Optional<User> caller) {
+        return caller.isPresent() && ADMIN.equals(caller.get().getRole());
+    }
+
+    // Answers 404 or 403 and returns false unless the caller owns the account or is an admin
+    private boolean ownsAccount(HttpExchange exchange, Optional<User> caller, String accountId)
+            throws IOException, SQLException {
+        if (isAdmin(caller)) {
+            return true;
+        }
+        Optional<Account> account = bankService.findAccount(accountId);
+        if (account.isEmpty()) {
+            notFound(exchange);
+            return false;
+        }
+        if (caller.isEmpty() || !caller.get().getId().equals(account.get().getOwnerId())) {
+            fail(exchange, 403, "Only the owner of the account may use it");
+            return false;
+        }
+        return true;
+    }
+
+    // Same as ownsAccount, for the account the check was deposited on
+    private boolean ownsCheck(HttpExchange exchange, Optional<User> caller, String checkId)
+            throws IOException, SQLException {
+        if (isAdmin(caller)) {
+            return true;
+        }
+        Optional<Check> check = bankService.findCheck(checkId);
+        if (check.isEmpty()) {
+            notFound(exchange);
+            return false;
+        }
+        return ownsAccount(exchange, caller, check.get().getAccountId());
+    }
+
+    // POST /users, GET|PUT|DELETE /users/{id}, GET /users/{id}/accounts, GET /users/{id}/balance
+    private void users(HttpExchange exchange, String method, String[] path, Optional<User> caller)
+            throws IOException, SQLException {
+        boolean self = path.length > 1 && caller.isPresent() && caller.get().getId().equals(path[1]);
+        if (!isAdmin(caller) && !(self && !method.equals("POST"))) {
+            fail(exchange, 403, "Only an admin may see or change other users");
+            return;
+        }
+        if (path.length == 1 && method.equals("POST")) {
+            Map<String, String> body = body(exchange);
+            User user = new User(required(body, "id"), required(body, "password"), body.getOrDefault("role", "client"));
+            bankService.addUser(user);
+            send(exchange, 201, Json.user(user));
+        } else if (path.length == 2 && method.equals("GET")) {
+            found(exchange, bankService.findUser(path[1]).map(Json::user));
+        } else if (path.length == 2 && method.equals("PUT")) {
+            Optional<User> existing = bankService.findUser(path[1]);
+            if (existing.isEmpty()) {
+                notFound(exchange);
+                return;
+            }
+            Map<String, String> body = body(exchange);
+            if (body.containsKey("role") && !isAdmin(caller)) {
+                fail(exchange, 403, "Only an admin may change roles");
+                return;
+            }
+            // A missing password keeps the stored one
+            User user = new User(path[1], body.get("password"), body.getOrDefault("role", existing.get().getRole()));
+            bankService.updateUser(user);
+            send(exchange, 200, Json.user(user));
+        } else if (path.length == 2 && method.equals("DELETE")) {
+            bankService.removeUser(path[1]);
+            send(exchange, 204, null);
+        } else if (path.length == 3 && path[2].equals("accounts") && method.equals("GET")) {
+            stream(exchange, bankService.streamAccountsForUser(path[1]), Json::account);
+        } else if (path.length == 3 && path[2].equals("balance") && method.equals("GET")) {
+            send(exchange, 200, "{\"userId\":" + Json.quote(path[1]) + ",\"totalBalance\":"
+                    + Money.format(bankService.getTotalBalanceForUser(path[1])) + "}");
+        } else {
+            unsupported(exchange);
+        }
+    }
+
+    // POST /sessions, GET|DELETE /sessions/{token}
+    private void sessions(HttpExchange exchange, String method, String[] path) throws IOException, SQLException {
+        if (path.length == 1 && method.equals("POST")) {
+            Map<String, String> body = body(exchange);
+            Optional<String> token = bankService.openSession(required(body, "userId"), required(body, "password"));
+            if (token.isPresent()) {
+                send(exchange, 201, "{\"token\":" + Json.quote(token.get()) + "}");
+            } else {
+                fail(exchange, 401, "Invalid credentials");
+            }
+        } else if (path.length == 2 && method.equals("GET")) {
+            found(exchange, bankService.getSessionUser(path[1]).map(Json::user));
+        } else if (path.length == 2 && method.equals("DELETE")) {
+            bankService.closeSession(path[1]);
+            send(exchange, 204, null);
+        } else {
+            unsupported(exchange);
+        }
+    }
+
+    // POST /accounts, GET|DELETE /accounts/{id}, POST /accounts/{id}/deposits|withdrawals, GET /accounts/{id}/checks
+    private void accounts(HttpExchange exchange, String method, String[] path, Optional<User> caller)
+            throws IOException, SQLException {
+        if (path.length > 1 && !ownsAccount(exchange, caller, path[1])) {
+            return;
+        }
+        if (path.length == 1 && method.equals("POST")) {
+            Map<String, String> body = body(exchange);
+            String balance = body.get("balance");
+            Account account = new Account(required(body, "accountId"), balance == null ? 0 : Money.parse(balance),
+                    required(body, "ownerId"));
+            if (!isAdmin(caller) && !caller.get().getId().equals(account.getOwnerId())) {
+                fail(exchange, 403, "Only an admin may open accounts for other users");
+                return;
+            }
+            bankService.addAccount(account);
+            send(exchange, 201, Json.account(account));
+        } else if (path.length == 2 && method.equals("GET")) {
+            found(exchange, bankService.findAccount(path[1]).map(Json::account));
+        } else if (path.length == 2 && method.equals("DELETE")) {
+            bankService.removeAccount(path[1]);
+            send(exchange, 204, null);
+        } else if (path.length == 3 && path[2].equals("deposits") && method.equals("POST")) {
+            Map<String, String> body = body(exchange);
+            long amount = amount(body);
+            String key = body.get("idempotencyKey");
+            boolean applied = true;
+            if (key == null) {
+                bankService.depositAmount(path[1], amount);
+            } else {
+                applied = bankService.depositAmount(path[1], amount, key);
+            }
+            send(exchange, 200, "{\"accountId\":" + Json.quote(path[1]) + ",\"applied\":" + applied + "}");
+        } else if (path.length == 3 && path[2].equals("withdrawals") && method.equals("POST")) {
+            Map<String, String> body = body(exchange);
+            long amount = amount(body);
+            String key = body.get("idempotencyKey");
+            boolean applied = true;
+            if (key == null) {
+                bankService.withdrawAmount(path[1], amount);
+            } else {
+                applied = bankService.withdrawAmount(path[1], amount, key);
+            }
+            send(exchange, 200, "{\"accountId\":" + Json.quote(path[1]) + ",\"applied\":" + applied + "}");
+        } else if (path.length == 3 && path[2].equals("checks") && method.equals("GET")) {
+            stream(exchange, bankService.streamUnvalidatedChecksForAccount(path[1]), Json::check);
+        } else {
+            unsupported(exchange);
+        }
+    }
+
+    // POST /transfers
+    private void transfers(HttpExchange exchange, String method, String[] path, Optional<User> caller)
+            throws IOException, SQLException {
+        if (path.length != 1 || !method.equals("POST")) {
+            unsupported(exchange);
+            return;
+        }
+        Map<String, String> body = body(exchange);
+        String from = required(body, "fromAccountId");
+        String to = required(body, "toAccountId");
+        long amount = amount(body);
+        String key = body.get("idempotencyKey");
+        // Anyone may be paid, only the owner of the source account may pay
+        if (!ownsAccount(exchange, caller, from)) {
+            return;
+        }
+        boolean applied = true;
+        if (key == null) {
+            bankService.transferAmount(from, to, amount);
+        } else {
+            applied = bankService.transferAmount(from, to, amount, key);
+        }
+        send(exchange, 200, "{\"fromAccountId\":" + Json.quote(from) + ",\"toAccountId\":" + Json.quote(to)
+                + ",\"amount\":" + Money.format(amount) + ",\"applied\":" + applied + "}");
+    }
+
+    // POST /checks, POST /checks/{id}/validate, DELETE /checks/{id}
+    private void checks(HttpExchange exchange, String method, String[] path, Optional<User> caller)
+            throws IOException, SQLException {
+        if (path.length > 1 && !ownsCheck(exchange, caller, path[1])) {
+            return;
+        }
+        if (path.length == 1 && method.equals("POST")) {
+            Map<String, String> body = body(exchange);
+            Check check = new Check(required(body, "checkId"), amount(body), required(body, "accountId"), false);
+            if (!ownsAccount(exchange, caller, check.getAccountId())) {
+                return;
+            }
+            bankService.depositCheck(check.getCheckId(), check.getAccountId(), check.getAmount());
+            send(exchange, 201, Json.check(check));
+        } else if (path.length == 3 && path[2].equals("validate") && method.equals("POST")) {
+            bankService.validateCheck(path[1]);
+            send(exchange, 200, "{\"checkId\":" + Json.quote(path[1]) + ",\"isValidated\":true}");
+        } else if (path.length == 2 && method.equals("DELETE")) {
+            bankService.removeCheck(path[1]);
+            send(exchange, 204, null);
+        } else {
+            unsupported(exchange);
+        }
+    }
+
+    private static Map<String, String> body(HttpExchange exchange) throws IOException {
+        byte[] bytes = exchange.getRequestBody().readAllBytes();
+        return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static String required(Map<String, String> body, String field) {
+        String value = body.get(field);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing field " + field);
+        }
+        return value;
+    }
+
+    private static long amount(Map<String, String> body) {
+        long amount = Money.parse(required(body, "amount"));
+        if (amount <= 0) {
+            throw new IllegalArgumentException("The amount must be positive");
+        }
+        return amount;
+    }
+
+    // Writes the array element by element as the cursor advances, the stream holds a reader until it is closed
+    private static <T> void stream(HttpExchange exchange, Stream<T> rows, Function<T, String> toJson)
+            throws IOException {
+        try (rows) {
+            Iterator<T> iterator = rows.iterator();
+            // Read the first row before committing to a 200, so a failing query still gets a proper error
+            boolean any = iterator.hasNext();
+            exchange.getResponseHeaders().set("Content-Type", JSON);
+            exchange.sendResponseHeaders(200, 0);
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+                    StandardCharsets.UTF_8))) {
+                out.write('[');
+                if (any) {
+                    out.write(toJson.apply(iterator.next()));
+                    while (iterator.hasNext()) {
+                        out.write(',');
+                        out.write(toJson.apply(iterator.next()));
+                    }
+                }
+                out.write(']');
+            }
+        }
+    }
+
+    private static void found(HttpExchange exchange, Optional<String> json) throws IOException {
+        if (json.isPresent()) {
+            send(exchange, 200, json.get());
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    private static void notFound(HttpExchange exchange) throws IOException {
+        fail(exchange, 404, "Not found");
+    }
+
+    private static void unsupported(HttpExchange exchange) throws IOException {
+        fail(exchange, 405, exchange.getRequestMethod() + " is not supported on " + exchange.getRequestURI().getPath());
+    }
+
+    private static void fail(HttpExchange exchange, int status, String message) throws IOException {
+        // Too late for a status once a streamed body has started, closing the exchange cuts the response short
+        if (exchange.getResponseCode() == -1) {
+            send(exchange, status, Json.error(message));
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
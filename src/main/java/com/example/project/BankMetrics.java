@@ -0,0 +1,132 @@
+package com.example.project;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Call counts, error counts and latency histograms for every public BankService method.
+// Recording only touches preallocated counters and histograms indexed by the operation's ordinal,
+// so it is cheap enough to stay enabled in production.
+public class BankMetrics implements BankMetricsMBean {
+    private static final BankMetricsListener[] NO_LISTENERS = new BankMetricsListener[0];
+
+    private final RetryPolicy retryPolicy;
+    private final LongAdder[] counts = new LongAdder[BankOperation.values().length];
+    private final LongAdder[] errors = new LongAdder[BankOperation.values().length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[BankOperation.values().length];
+    // Replaced on every change so the hot path iterates a plain array
+    private volatile BankMetricsListener[] listeners = NO_LISTENERS;
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    BankMetrics(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+            errors[i] = new LongAdder();
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    public synchronized void addListener(BankMetricsListener listener) {
+        BankMetricsListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    public synchronized void removeListener(BankMetricsListener listener) {
+        listeners = Arrays.stream(listeners).filter(l -> l != listener).toArray(BankMetricsListener[]::new);
+    }
+
+    void record(BankOperation operation, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        counts[operation.ordinal()].increment();
+        latencies[operation.ordinal()].record(nanos);
+        for (BankMetricsListener listener : listeners) {
+            listener.operationCompleted(operation, nanos);
+        }
+    }
+
+    void recordError(BankOperation operation, Exception error) {
+        errors[operation.ordinal()].increment();
+        for (BankMetricsListener listener : listeners) {
+            listener.operationFailed(operation, error);
+        }
+    }
+
+    void recordBusyRetry(int attempt) {
+        for (BankMetricsListener listener : listeners) {
+            listener.busyRetry(attempt);
+        }
+    }
+
+    public long getCount(BankOperation operation) {
+        return counts[operation.ordinal()].sum();
+    }
+
+    public long getErrors(BankOperation operation) {
+        return errors[operation.ordinal()].sum();
+    }
+
+    public LatencyHistogram getLatency(BankOperation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    @Override
+    public long getTotalCalls() {
+        return Arrays.stream(counts).mapToLong(LongAdder::sum).sum();
+    }
+
+    @Override
+    public long getTotalErrors() {
+        return Arrays.stream(errors).mapToLong(LongAdder::sum).sum();
+    }
+
+    @Override
+    public long getBusyErrors() {
+        return retryPolicy.getBusyErrors();
+    }
+
+    @Override
+    public long getRetries() {
+        return retryPolicy.getRetries();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i].reset();
+            errors[i].reset();
+            latencies[i].reset();
+        }
+    }
+
+    // Publishes the totals as com.example.project:type=BankService,name=<name>
+    // and every operation as com.example.project:type=BankService,name=<name>,operation=<method>
+    synchronized void register(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String prefix = "com.example.project:type=BankService,name=" + ObjectName.quote(name);
+        ObjectName root = new ObjectName(prefix);
+        server.registerMBean(this, root);
+        registeredNames.add(root);
+        for (BankOperation operation : BankOperation.values()) {
+            ObjectName operationName = new ObjectName(prefix + ",operation=" + operation.getMethodName());
+            server.registerMBean(new OperationMetrics(this, operation), operationName);
+            registeredNames.add(operationName);
+        }
+    }
+
+    synchronized void unregister() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames) {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+        registeredNames.clear();
+    }
+}
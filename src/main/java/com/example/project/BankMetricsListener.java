@@ -0,0 +1,17 @@
+package com.example.project;
+
+// Receives every timed BankService call. Callbacks run on the calling thread, so they must be cheap and must not
+// call back into the service
+public interface BankMetricsListener {
+
+    default void operationCompleted(BankOperation operation, long nanos) {
+    }
+
+    // Called before operationCompleted when the call throws
+    default void operationFailed(BankOperation operation, Exception error) {
+    }
+
+    // A write transaction found the database busy and is about to retry
+    default void busyRetry(int attempt) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.project;
+
+public interface BankMetricsMBean {
+
+    long getTotalCalls();
+
+    long getTotalErrors();
+
+    long getBusyErrors();
+
+    long getRetries();
+
+    void reset();
+}
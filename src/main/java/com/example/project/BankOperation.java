@@ -0,0 +1,50 @@
+package com.example.project;
+
+// Public BankService methods tracked by BankMetrics, named after the method they time
+public enum BankOperation {
+    ADD_USER("addUser"),
+    REMOVE_USER("removeUser"),
+    FIND_USER("findUser"),
+    AUTHENTICATE_USER("authenticateUser"),
+    UPDATE_USER("updateUser"),
+    OPEN_SESSION("openSession"),
+    GET_SESSION_USER("getSessionUser"),
+    CLOSE_SESSION("closeSession"),
+    ADD_ACCOUNT("addAccount"),
+    REMOVE_ACCOUNT("removeAccount"),
+    FIND_ACCOUNT("findAccount"),
+    UPDATE_ACCOUNT("updateAccount"),
+    DEPOSIT_AMOUNT("depositAmount"),
+    WITHDRAW_AMOUNT("withdrawAmount"),
+    TRANSFER_AMOUNT("transferAmount"),
+    DEPOSIT_CHECK("depositCheck"),
+    FIND_CHECK("findCheck"),
+    VALIDATE_CHECK("validateCheck"),
+    VALIDATE_CHECKS("validateChecks"),
+    VALIDATE_ALL_PENDING_FOR_ACCOUNT("validateAllPendingForAccount"),
+    GET_ACCOUNTS_FOR_USER("getAccountsForUser"),
+    GET_ACCOUNTS_FOR_USER_PAGE("getAccountsForUserPage"),
+    STREAM_ACCOUNTS_FOR_USER("streamAccountsForUser"),
+    GET_UNVALIDATED_CHECKS_FOR_ACCOUNT("getUnvalidatedChecksForAccount"),
+    GET_UNVALIDATED_CHECKS_FOR_ACCOUNT_PAGE("getUnvalidatedChecksForAccountPage"),
+    STREAM_UNVALIDATED_CHECKS_FOR_ACCOUNT("streamUnvalidatedChecksForAccount"),
+    GET_TOTAL_BALANCE_FOR_USER("getTotalBalanceForUser"),
+    GET_PENDING_CHECK_TOTAL_FOR_ACCOUNT("getPendingCheckTotalForAccount"),
+    DEPOSIT_AMOUNTS("depositAmounts"),
+    WITHDRAW_AMOUNTS("withdrawAmounts"),
+    ADD_ACCOUNTS("addAccounts"),
+    DEPOSIT_CHECKS("depositChecks"),
+    REMOVE_CHECK("removeCheck"),
+    // Also counts the errors of the ledger's background flushes
+    FLUSH_LEDGER("flushLedger");
+
+    private final String methodName;
+
+    BankOperation(String methodName) {
+        this.methodName = methodName;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+}
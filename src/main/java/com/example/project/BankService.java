@@ -1,33 +1,142 @@
 package com.example.project;
 
+import javax.management.JMException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class BankService {
 
-    private static final String URL = "jdbc:sqlite:bank.db";
-    private Connection conn;
+    private final BankConfig config;
+    private final RetryPolicy retryPolicy;
+    private final BankMetrics metrics;
+    private final PasswordHasher passwordHasher;
+    private final SessionManager sessions;
+    private ConnectionPool pool;
+    private AccountLedger ledger;
+    private BankCache cache;
+    private GroupCommitter groupCommitter;
+    private IdempotencyIndex idempotency;
 
     public BankService() {
+        this(new BankConfig());
+    }
+
+    public BankService(String url) {
+        this(configForUrl(url));
+    }
+
+    public BankService(BankConfig config) {
+        this.config = config;
+        this.retryPolicy = new RetryPolicy(config.getMaxRetryAttempts(),
+                config.getInitialRetryBackoffMillis(), config.getMaxRetryBackoffMillis());
+        this.metrics = new BankMetrics(retryPolicy);
+        this.passwordHasher = new PasswordHasher(config.getPasswordHashIterations());
+        this.sessions = new SessionManager(config.getSessionMaxEntries(), config.getSessionTtlMillis());
         connect();
         initializeDatabase();
+        restoreBulkLoadIndexes();
+        if (config.isCacheEnabled()) {
+            this.cache = new BankCache(config.getCacheMaxEntries(), config.getCacheTtlMillis());
+        }
+        if (config.isLedgerEnabled()) {
+            startLedger();
+        }
+        if (config.isGroupCommitEnabled()) {
+            this.groupCommitter = new GroupCommitter(this, config.getGroupCommitWindowMicros(),
+                    config.getGroupCommitMaxSize());
+        }
+        startIdempotencyIndex();
+        if (config.isJmxEnabled()) {
+            registerMetrics();
+        }
+    }
+
+    private static BankConfig configForUrl(String url) {
+        BankConfig config = new BankConfig();
+        config.setUrl(url);
+        return config;
     }
 
     private void connect() {
         try {
-            this.conn = DriverManager.getConnection(URL);
+            this.pool = new ConnectionPool(config);
             System.out.println("Connection to SQLite has been established.");
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
     }
 
+    // A bulk load interrupted by a crash left its table without some indexes and the summary triggers
+    private void restoreBulkLoadIndexes() {
+        try {
+            int restored = inWriteTransaction(BulkLoader::restoreDeferred);
+            if (restored > 0) {
+                System.out.println("Recreated " + restored + " indexes and triggers dropped by an interrupted bulk load");
+            }
+        } catch (SQLException e) {
+            System.out.println("Could not recreate the indexes and triggers of an interrupted bulk load: "
+                    + e.getMessage());
+        }
+    }
+
+    private void startLedger() {
+        try {
+            this.ledger = new AccountLedger(this, config.getLedgerFlushIntervalMillis(),
+                    config.getLedgerMaxDirtyAccounts(), config.getHotAccountCells());
+            for (String accountId : config.getHotAccounts()) {
+                ledger.setHot(accountId, true);
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private void startIdempotencyIndex() {
+        try {
+            this.idempotency = new IdempotencyIndex(this, config);
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private void registerMetrics() {
+        try {
+            metrics.register(config.getJmxName());
+        } catch (JMException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
     public void disconnect() {
         try {
-            if (this.conn != null) {
-                this.conn.close();
+            if (config.isJmxEnabled()) {
+                metrics.unregister();
+            }
+        } catch (JMException e) {
+            System.out.println(e.getMessage());
+        }
+        if (this.groupCommitter != null) {
+            this.groupCommitter.close();
+        }
+        if (this.idempotency != null) {
+            this.idempotency.close();
+        }
+        try {
+            if (this.ledger != null) {
+                this.ledger.close();
+            }
+            if (this.pool != null) {
+                this.pool.close();
                 System.out.println("Connection to SQLite has been closed.");
             }
         } catch (SQLException e) {
@@ -35,263 +144,1285 @@ public class BankService {
         }
     }
 
+    public PoolMetrics getPoolMetrics() {
+        return pool.getMetrics();
+    }
+
+    // Journal mode and durability pragmas as SQLite reports them
+    public Map<String, String> getDurabilitySettings() throws SQLException {
+        return pool.readSettings();
+    }
+
+    // Copies the database into memory for reporting, see BankSnapshot. Needs a file database
+    public BankSnapshot snapshot() throws SQLException {
+        String url = config.getUrl();
+        if (pool.isInMemory() || !url.startsWith("jdbc:sqlite:")) {
+            throw new SQLException("Snapshots can only be taken of a database file: " + url);
+        }
+        // Ledger balances become part of the copy once written
+        flushLedger();
+        String file = url.substring("jdbc:sqlite:".length());
+        int options = file.indexOf('?');
+        return BankSnapshot.copyOf(options < 0 ? file : file.substring(0, options));
+    }
+
+    // Checkpoints the WAL immediately instead of waiting for the scheduler
+    public int checkpointWal() throws SQLException {
+        return pool.checkpoint();
+    }
+
+    // Persists every ledger change made so far, a no-op unless the ledger engine is enabled
+    public void flushLedger() throws SQLException {
+        if (ledger == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            ledger.flush();
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.FLUSH_LEDGER, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.FLUSH_LEDGER, start);
+        }
+    }
+
+    // Spreads an account's credits over sub-balances, or folds them back, without pausing traffic. Credits to a
+    // hot account stop contending on its lock; debits and reads still see the whole balance
+    public void setHotAccount(String accountId, boolean hot) throws SQLException {
+        if (ledger == null) {
+            throw new SQLException("Hot accounts need the ledger engine, see BankConfig.ledgerEnabled.");
+        }
+        ledger.setHot(accountId, hot);
+    }
+
+    // Accounts currently in hot mode, always empty without the ledger
+    public Set<String> getHotAccounts() {
+        return ledger == null ? Set.of() : ledger.getHotAccounts();
+    }
+
+    // In ledger mode SQL that changes accounts runs with the ledger paused and refreshes the touched accounts
+    // The cached copies of the touched accounts are dropped once the change is committed
+    <T> T changeAccounts(SqlCall<T> call, Function<T, Collection<String>> touched) throws SQLException {
+        T result = ledger == null ? call.call() : ledger.exclusive(call, touched);
+        if (cache != null) {
+            Collection<String> accountIds = touched.apply(result);
+            if (accountIds == null) {
+                cache.clear();
+            } else {
+                cache.invalidateAccounts(accountIds);
+            }
+        }
+        return result;
+    }
+
+    // Statistics of the read-through caches, empty when caching is disabled
+    public Map<String, CacheStats> getCacheStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        if (cache != null) {
+            stats.put("accounts", cache.getAccountStats());
+            stats.put("users", cache.getUserStats());
+            stats.put("accountsByOwner", cache.getAccountsByOwnerStats());
+        }
+        return stats;
+    }
+
+    // Drops every cached row, for rows written behind the service's back. The ledger is left alone
+    void clearCache() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    PooledConnection acquireReader() throws SQLException {
+        return pool.acquireReader();
+    }
+
+    BankConfig getConfig() {
+        return config;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    // Per-method call counts, errors and latencies, plus the busy and retry totals of the retry policy
+    public BankMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Transactions committed by group commit and the mutations they carried, both zero unless it is enabled
+    public long getGroupCommitCount() {
+        return groupCommitter == null ? 0 : groupCommitter.getGroups();
+    }
+
+    public long getGroupCommitMutationCount() {
+        return groupCommitter == null ? 0 : groupCommitter.getMutations();
+    }
+
+    // Runs a single-statement mutation in autocommit on the writer, or in the next group when group commit is on
+    private void runMutation(SqlWork<?> work) throws SQLException {
+        if (groupCommitter != null) {
+            groupCommitter.execute(work);
+            return;
+        }
+        try (PooledConnection conn = pool.acquireWriter()) {
+            work.run(conn);
+        }
+    }
+
+    // Runs the work in one write transaction, retrying the whole transaction while SQLite reports it busy
+    <T> T inWriteTransaction(SqlWork<T> work) throws SQLException {
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            boolean nested = false;
+            try (PooledConnection conn = pool.acquireWriter()) {
+                // Joining an enclosing transaction, only the outermost one may retry
+                nested = conn.isInTransaction();
+                return conn.inTransaction(work);
+            } catch (SQLException e) {
+                if (nested || !retryPolicy.shouldRetry(e, attempt)) {
+                    throw e;
+                }
+            }
+            metrics.recordBusyRetry(attempt);
+            retryPolicy.backoff(attempt);
+        }
+    }
+
+    // Brings the schema up to date, a database that is already current costs a single PRAGMA read
     public void initializeDatabase() {
-        try (Statement stmt = this.conn.createStatement()) {
-            // SQL statement for creating a new table for users
-            String sqlUserTable = "CREATE TABLE IF NOT EXISTS users (\n"
-                    + " id text PRIMARY KEY,\n"
-                    + " password text NOT NULL,\n"
-                    + " role text NOT NULL\n"
-                    + ");";
-
-            // SQL statement for creating a new table for accounts
-            String sqlAccountTable = "CREATE TABLE IF NOT EXISTS accounts (\n"
-                    + " accountId text PRIMARY KEY,\n"
-                    + " balance real NOT NULL,\n"
-                    + " ownerId text NOT NULL,\n"
-                    + " FOREIGN KEY (ownerId) REFERENCES users (id)\n"
-                    + ");";
-
-            // SQL statement for creating a new table for checks
-            String sqlCheckTable = "CREATE TABLE IF NOT EXISTS checks (\n"
-                    + " checkId text PRIMARY KEY,\n"
-                    + " amount real NOT NULL,\n"
-                    + " accountId text NOT NULL,\n"
-                    + " isValidated boolean NOT NULL,\n"
-                    + " FOREIGN KEY (accountId) REFERENCES accounts (accountId)\n"
-                    + ");";
-
-            // Execute SQL statements
-            stmt.execute(sqlUserTable);
-            stmt.execute(sqlAccountTable);
-            stmt.execute(sqlCheckTable);
+        try (PooledConnection conn = pool.acquireWriter()) {
+            new SchemaMigrator().migrate(conn);
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
     }
 
+    public int getSchemaVersion() throws SQLException {
+        try (PooledConnection conn = pool.acquireReader()) {
+            return SchemaMigrator.currentVersion(conn);
+        }
+    }
+
 
     // User management methods
     public void addUser(User user) throws SQLException {
-        String sql = "INSERT INTO users (id, password, role) VALUES (?, ?, ?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, user.getId());
-            pstmt.setString(2, user.getPassword());
-            pstmt.setString(3, user.getRole());
-            pstmt.executeUpdate();
+        long start = System.nanoTime();
+        try {
+            String sql = "INSERT INTO users (id, password, role) VALUES (?, ?, ?)";
+            try (PooledConnection conn = pool.acquireWriter()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, user.getId());
+                pstmt.setString(2, storedPassword(user.getPassword()));
+                pstmt.setString(3, user.getRole());
+                pstmt.executeUpdate();
+            }
+            if (cache != null) {
+                cache.invalidateUser(user.getId());
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.ADD_USER, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.ADD_USER, start);
         }
     }
 
     public void removeUser(String userId) throws SQLException {
-        String sql = "DELETE FROM users WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, userId);
-            pstmt.executeUpdate();
+        long start = System.nanoTime();
+        try {
+            String sql = "DELETE FROM users WHERE id = ?";
+            try (PooledConnection conn = pool.acquireWriter()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, userId);
+                pstmt.executeUpdate();
+            }
+            sessions.invalidateUser(userId);
+            if (cache != null) {
+                cache.invalidateUser(userId);
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.REMOVE_USER, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.REMOVE_USER, start);
         }
     }
 
     public Optional<User> findUser(String userId) throws SQLException {
-        String sql = "SELECT id, password, role FROM users WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                User user = new User(
-                        rs.getString("id"),
-                        rs.getString("password"),
-                        rs.getString("role")
-                );
-                return Optional.of(user);
+        long start = System.nanoTime();
+        try {
+            User cached = cache == null ? null : cache.getUser(userId);
+            if (cached != null) {
+                return Optional.of(cached);
             }
+            long generation = cache == null ? 0 : cache.beginRead();
+            String sql = "SELECT id, password, role FROM users WHERE id = ?";
+            try (PooledConnection conn = pool.acquireReader()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, userId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        User user = new User(
+                                rs.getString("id"),
+                                rs.getString("password"),
+                                rs.getString("role")
+                        );
+                        if (cache != null) {
+                            cache.putUser(user, generation);
+                        }
+                        return Optional.of(user);
+                    }
+                }
+            }
+            return Optional.empty();
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.FIND_USER, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.FIND_USER, start);
         }
-        return Optional.empty();
     }
 
     public boolean authenticateUser(String userId, String password) throws SQLException {
-        String sql = "SELECT id FROM users WHERE id = ? AND password = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, userId);
-            pstmt.setString(2, password);
-            ResultSet rs = pstmt.executeQuery();
-            return rs.next();
+        long start = System.nanoTime();
+        try {
+            return verifyPassword(userId, password).isPresent();
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.AUTHENTICATE_USER, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.AUTHENTICATE_USER, start);
         }
     }
 
     public void updateUser(User user) throws SQLException {
-        String sql = "UPDATE users SET password = ?, role = ? WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, user.getPassword());
-            pstmt.setString(2, user.getRole());
-            pstmt.setString(3, user.getId());
-            pstmt.executeUpdate();
+        long start = System.nanoTime();
+        try {
+            // A null password keeps the stored one
+            String sql = "UPDATE users SET password = COALESCE(?, password), role = ? WHERE id = ?";
+            try (PooledConnection conn = pool.acquireWriter()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, storedPassword(user.getPassword()));
+                pstmt.setString(2, user.getRole());
+                pstmt.setString(3, user.getId());
+                pstmt.executeUpdate();
+            }
+            // Sessions carry the role and were opened with the old password
+            sessions.invalidateUser(user.getId());
+            if (cache != null) {
+                cache.invalidateUser(user.getId());
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.UPDATE_USER, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.UPDATE_USER, start);
         }
     }
 
+    // Verifies the password once and returns a session token, empty when the credentials are wrong.
+    // The token stays valid until closeSession, BankConfig.sessionTtlMillis, or a change to the user
+    public Optional<String> openSession(String userId, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                long generation = sessions.generation(userId);
+                Optional<User> user = verifyPassword(userId, password);
+                if (user.isEmpty()) {
+                    return Optional.empty();
+                }
+                Optional<String> token = sessions.issue(user.get(), generation);
+                // The user was changed while its password was being checked, check against the new row
+                if (token.isPresent()) {
+                    return token;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.OPEN_SESSION, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.OPEN_SESSION, start);
+        }
+    }
+
+    // The user a session belongs to, without its password, served from memory
+    public Optional<User> getSessionUser(String token) {
+        long start = System.nanoTime();
+        try {
+            return sessions.find(token);
+        } catch (RuntimeException e) {
+            metrics.recordError(BankOperation.GET_SESSION_USER, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.GET_SESSION_USER, start);
+        }
+    }
+
+    public void closeSession(String token) {
+        long start = System.nanoTime();
+        try {
+            sessions.close(token);
+        } catch (RuntimeException e) {
+            metrics.recordError(BankOperation.CLOSE_SESSION, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.CLOSE_SESSION, start);
+        }
+    }
+
+    public CacheStats getSessionStats() {
+        return sessions.getStats();
+    }
+
+    // Every password given to the API is hashed, even one shaped like a hash: only the bulk import takes stored hashes
+    private String storedPassword(String password) {
+        return password == null ? null : passwordHasher.hash(password);
+    }
+
+    // Returns the user when the password matches. Rows still holding a plaintext password, or a hash weaker than
+    // configured, are rehashed on the way; the update only applies if the row was not changed meanwhile
+    private Optional<User> verifyPassword(String userId, String password) throws SQLException {
+        User user;
+        String sql = "SELECT id, password, role FROM users WHERE id = ?";
+        try (PooledConnection conn = pool.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return Optional.empty();
+                }
+                user = new User(rs.getString("id"), rs.getString("password"), rs.getString("role"));
+            }
+        }
+        if (!passwordHasher.verify(password, user.getPassword())) {
+            return Optional.empty();
+        }
+        if (passwordHasher.needsRehash(user.getPassword())) {
+            String rehashed = passwordHasher.hash(password);
+            try (PooledConnection conn = pool.acquireWriter()) {
+                PreparedStatement pstmt = conn.prepare("UPDATE users SET password = ? WHERE id = ? AND password = ?");
+                pstmt.setString(1, rehashed);
+                pstmt.setString(2, userId);
+                pstmt.setString(3, user.getPassword());
+                pstmt.executeUpdate();
+            } catch (SQLException e) {
+                // The login still succeeds, the rehash is tried again next time
+                System.out.println(e.getMessage());
+            }
+            if (cache != null) {
+                cache.invalidateUser(userId);
+            }
+        }
+        return Optional.of(user);
+    }
+
 
     //Account management methods
     public void addAccount(Account account) throws SQLException {
-        String sql = "INSERT INTO accounts (accountId, balance, ownerId) VALUES (?, ?, ?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, account.getAccountId());
-            pstmt.setDouble(2, account.getBalance());
-            pstmt.setString(3, account.getOwnerId());
-            pstmt.executeUpdate();
+        long start = System.nanoTime();
+        try {
+            String sql = "INSERT INTO accounts (accountId, balance, ownerId) VALUES (?, ?, ?)";
+            changeAccounts(() -> {
+                try (PooledConnection conn = pool.acquireWriter()) {
+                    PreparedStatement pstmt = conn.prepare(sql);
+                    pstmt.setString(1, account.getAccountId());
+                    pstmt.setLong(2, account.getBalance());
+                    pstmt.setString(3, account.getOwnerId());
+                    pstmt.executeUpdate();
+                }
+                return null;
+            }, done -> List.of(account.getAccountId()));
+            if (cache != null) {
+                cache.invalidateOwner(account.getOwnerId());
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.ADD_ACCOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.ADD_ACCOUNT, start);
         }
     }
 
     public void removeAccount(String accountId) throws SQLException {
-        String sql = "DELETE FROM accounts WHERE accountId = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, accountId);
-            pstmt.executeUpdate();
+        long start = System.nanoTime();
+        try {
+            String sql = "DELETE FROM accounts WHERE accountId = ?";
+            changeAccounts(() -> {
+                try (PooledConnection conn = pool.acquireWriter()) {
+                    PreparedStatement pstmt = conn.prepare(sql);
+                    pstmt.setString(1, accountId);
+                    pstmt.executeUpdate();
+                }
+                return null;
+            }, done -> List.of(accountId));
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.REMOVE_ACCOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.REMOVE_ACCOUNT, start);
         }
     }
 
     public Optional<Account> findAccount(String accountId) throws SQLException {
-        String sql = "SELECT accountId, balance, ownerId FROM accounts WHERE accountId = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, accountId);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                Account account = new Account(
-                        rs.getString("accountId"),
-                        rs.getFloat("balance"),
-                        rs.getString("ownerId")
-                );
-                return Optional.of(account);
+        long start = System.nanoTime();
+        try {
+            if (ledger != null) {
+                return ledger.find(accountId);
+            }
+            Account cached = cache == null ? null : cache.getAccount(accountId);
+            if (cached != null) {
+                return Optional.of(cached);
             }
+            long generation = cache == null ? 0 : cache.beginRead();
+            String sql = "SELECT accountId, balance, ownerId FROM accounts WHERE accountId = ?";
+            try (PooledConnection conn = pool.acquireReader()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, accountId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        Account account = readAccount(rs);
+                        if (cache != null) {
+                            cache.putAccount(account, generation);
+                        }
+                        return Optional.of(account);
+                    }
+                }
+            }
+            return Optional.empty();
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.FIND_ACCOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.FIND_ACCOUNT, start);
         }
-        return Optional.empty();
     }
 
     public void updateAccount(Account account) throws SQLException {
-        String sql = "UPDATE accounts SET balance = ?, ownerId = ? WHERE accountId = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDouble(1, account.getBalance());
-            pstmt.setString(2, account.getOwnerId());
-            pstmt.setString(3, account.getAccountId());
-            pstmt.executeUpdate();
+        long start = System.nanoTime();
+        try {
+            String sql = "UPDATE accounts SET balance = ?, ownerId = ? WHERE accountId = ?";
+            changeAccounts(() -> {
+                try (PooledConnection conn = pool.acquireWriter()) {
+                    PreparedStatement pstmt = conn.prepare(sql);
+                    pstmt.setLong(1, account.getBalance());
+                    pstmt.setString(2, account.getOwnerId());
+                    pstmt.setString(3, account.getAccountId());
+                    pstmt.executeUpdate();
+                }
+                return null;
+            }, done -> List.of(account.getAccountId()));
+            if (cache != null) {
+                cache.invalidateOwner(account.getOwnerId());
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.UPDATE_ACCOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.UPDATE_ACCOUNT, start);
         }
     }
 
-    public void depositAmount(String accountId, double amount) throws SQLException {
-        String sql = "UPDATE accounts SET balance = balance + ? WHERE accountId = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDouble(1, amount);
-            pstmt.setString(2, accountId);
-            pstmt.executeUpdate();
+    public void depositAmount(String accountId, long amount) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (ledger != null) {
+                ledger.deposit(accountId, amount);
+                return;
+            }
+            runMutation(adjustBalance("UPDATE accounts SET balance = balance + ? WHERE accountId = ?", accountId, amount));
+            if (cache != null) {
+                cache.invalidateAccount(accountId);
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.DEPOSIT_AMOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.DEPOSIT_AMOUNT, start);
+        }
+    }
+
+    public void withdrawAmount(String accountId, long amount) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (ledger != null) {
+                ledger.withdraw(accountId, amount);
+                return;
+            }
+            runMutation(adjustBalance("UPDATE accounts SET balance = balance - ? WHERE accountId = ?", accountId, amount));
+            if (cache != null) {
+                cache.invalidateAccount(accountId);
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.WITHDRAW_AMOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.WITHDRAW_AMOUNT, start);
+        }
+    }
+
+    public void transferAmount(String fromAccountId, String toAccountId, long amount) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            requirePositive(amount);
+            if (ledger != null) {
+                ledger.transfer(fromAccountId, toAccountId, amount);
+                return;
+            }
+            SqlWork<Void> transfer = transfer(fromAccountId, toAccountId, amount);
+            // Grouped transfers run under their own savepoint, which keeps the debit and credit atomic
+            if (groupCommitter != null) {
+                groupCommitter.execute(transfer);
+            } else {
+                inWriteTransaction(transfer);
+            }
+            if (cache != null) {
+                cache.invalidateAccounts(List.of(fromAccountId, toAccountId));
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.TRANSFER_AMOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.TRANSFER_AMOUNT, start);
+        }
+    }
+
+    // The overloads taking an idempotency key apply their change at most once per key: a repeated call with the
+    // same key and arguments returns false without changing anything, the same key with other arguments fails.
+    // Keys are forgotten after BankConfig.idempotencyRetentionMillis
+    public boolean depositAmount(String accountId, long amount, String idempotencyKey) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return applyOnce(idempotencyKey, "deposit " + accountId + " " + amount, List.of(accountId),
+                    adjustBalance("UPDATE accounts SET balance = balance + ? WHERE accountId = ?", accountId, amount));
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.DEPOSIT_AMOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.DEPOSIT_AMOUNT, start);
+        }
+    }
+
+    public boolean withdrawAmount(String accountId, long amount, String idempotencyKey) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return applyOnce(idempotencyKey, "withdraw " + accountId + " " + amount, List.of(accountId),
+                    adjustBalance("UPDATE accounts SET balance = balance - ? WHERE accountId = ?", accountId, amount));
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.WITHDRAW_AMOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.WITHDRAW_AMOUNT, start);
+        }
+    }
+
+    public boolean transferAmount(String fromAccountId, String toAccountId, long amount, String idempotencyKey)
+            throws SQLException {
+        long start = System.nanoTime();
+        try {
+            requirePositive(amount);
+            // A failed transfer rolls its key back too, so it can be retried under the same key
+            return applyOnce(idempotencyKey, "transfer " + fromAccountId + " " + toAccountId + " " + amount,
+                    List.of(fromAccountId, toAccountId), transfer(fromAccountId, toAccountId, amount));
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.TRANSFER_AMOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.TRANSFER_AMOUNT, start);
         }
     }
 
-    public void withdrawAmount(String accountId, double amount) throws SQLException {
-        String sql = "UPDATE accounts SET balance = balance - ? WHERE accountId = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDouble(1, amount);
+    // Deletes idempotency keys past their retention now instead of waiting for the next scheduled purge
+    public int expireIdempotencyKeys() throws SQLException {
+        return idempotency.expire();
+    }
+
+    public IdempotencyStats getIdempotencyStats() {
+        return idempotency.getStats();
+    }
+
+    // Claims the key and runs the work in one transaction. In ledger mode this takes the SQL path with the ledger
+    // paused, since a change held only in memory could be lost in a crash while its key survives
+    private boolean applyOnce(String idempotencyKey, String request, List<String> accountIds, SqlWork<?> work)
+            throws SQLException {
+        if (idempotencyKey == null) {
+            throw new SQLException("An idempotency key is required.");
+        }
+        if (idempotency.isKnownDuplicate(idempotencyKey, request)) {
+            return false;
+        }
+        SqlWork<Boolean> once = conn -> {
+            if (!idempotency.claim(conn, idempotencyKey, request)) {
+                return false;
+            }
+            work.run(conn);
+            return true;
+        };
+        boolean applied = changeAccounts(() -> ledger == null && groupCommitter != null
+                ? groupCommitter.execute(once) : inWriteTransaction(once), done -> accountIds);
+        idempotency.remember(idempotencyKey, request);
+        return applied;
+    }
+
+    private static SqlWork<Integer> adjustBalance(String sql, String accountId, long amount) {
+        return conn -> {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setLong(1, amount);
             pstmt.setString(2, accountId);
-            pstmt.executeUpdate();
+            return pstmt.executeUpdate();
+        };
+    }
+
+    // A negative transfer would move money out of the target, a zero one would only cost a transaction
+    private static void requirePositive(long amount) throws SQLException {
+        if (amount <= 0) {
+            throw new SQLException("Transfer cannot be completed: the amount must be positive.");
         }
     }
 
-    public void transferAmount(String fromAccountId, String toAccountId, double amount) throws SQLException {
-        // Check if both accounts exist and have sufficient funds
-        Optional<Account> fromAccount = findAccount(fromAccountId);
-        Optional<Account> toAccount = findAccount(toAccountId);
+    // Debit only if the funds are there, then credit, both inside one transaction
+    private static SqlWork<Void> transfer(String fromAccountId, String toAccountId, long amount) {
+        String debitSql = "UPDATE accounts SET balance = balance - ? WHERE accountId = ? AND balance >= ?";
+        String creditSql = "UPDATE accounts SET balance = balance + ? WHERE accountId = ?";
+        return conn -> {
+            PreparedStatement debit = conn.prepare(debitSql);
+            debit.setLong(1, amount);
+            debit.setString(2, fromAccountId);
+            debit.setLong(3, amount);
+            PreparedStatement credit = conn.prepare(creditSql);
+            credit.setLong(1, amount);
+            credit.setString(2, toAccountId);
+            if (debit.executeUpdate() != 1) {
+                throw accountExists(conn, fromAccountId) ? new InsufficientFundsException()
+                        : new SQLException("Transfer cannot be completed: accounts validation failed or insufficient funds.");
+            }
+            if (credit.executeUpdate() != 1) {
+                // Throwing rolls back the debit
+                throw new SQLException("Transfer cannot be completed: accounts validation failed or insufficient funds.");
+            }
+            return null;
+        };
+    }
 
-        if (fromAccount.isPresent() && toAccount.isPresent() && fromAccount.get().getBalance() >= amount) {
-            // Withdraw from the source account
-            withdrawAmount(fromAccountId, amount);
-            // Deposit to the destination account
-            depositAmount(toAccountId, amount);
-        } else {
-            // Throw an exception or handle it as per your application's requirements
-            throw new SQLException("Transfer cannot be completed: accounts validation failed or insufficient funds.");
+    static boolean accountExists(PooledConnection conn, String accountId) throws SQLException {
+        PreparedStatement pstmt = conn.prepare("SELECT 1 FROM accounts WHERE accountId = ?");
+        pstmt.setString(1, accountId);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next();
         }
     }
 
-    public void depositCheck(String checkId, String accountId, double amount) throws SQLException {
-        String sql = "INSERT INTO checks (checkId, amount, accountId, isValidated) VALUES (?, ?, ?, false)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, checkId);
-            pstmt.setDouble(2, amount);
-            pstmt.setString(3, accountId);
-            pstmt.executeUpdate();
+    public void depositCheck(String checkId, String accountId, long amount) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String sql = "INSERT INTO checks (checkId, amount, accountId, isValidated) VALUES (?, ?, ?, false)";
+            try (PooledConnection conn = pool.acquireWriter()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, checkId);
+                pstmt.setLong(2, amount);
+                pstmt.setString(3, accountId);
+                pstmt.executeUpdate();
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.DEPOSIT_CHECK, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.DEPOSIT_CHECK, start);
         }
     }
 
     public void validateCheck(String checkId) throws SQLException {
-        // First, retrieve the check details
-        String findCheckSql = "SELECT amount, accountId FROM checks WHERE checkId = ? AND isValidated = false";
-        try (PreparedStatement pstmtFind = conn.prepareStatement(findCheckSql)) {
-            pstmtFind.setString(1, checkId);
-            ResultSet rs = pstmtFind.executeQuery();
-
-            if (rs.next()) {
-                double amount = rs.getDouble("amount");
-                String accountId = rs.getString("accountId");
+        long start = System.nanoTime();
+        try {
+            // First, retrieve the check details
+            String findCheckSql = "SELECT amount, accountId FROM checks WHERE checkId = ? AND isValidated = false";
+            String creditSql = "UPDATE accounts SET balance = balance + ? WHERE accountId = ?";
+            // The lookup, the validation and the deposit commit together
+            changeAccounts(() -> inWriteTransaction(conn -> {
+                PreparedStatement pstmtFind = conn.prepare(findCheckSql);
+                pstmtFind.setString(1, checkId);
+                long amount;
+                String accountId;
+                try (ResultSet rs = pstmtFind.executeQuery()) {
+                    if (!rs.next()) {
+                        // Handle the case where the check does not exist or is already validated
+                        throw new SQLException("Check validation failed: Check does not exist or is already validated.");
+                    }
+                    amount = rs.getLong("amount");
+                    accountId = rs.getString("accountId");
+                }
 
                 // Now validate the check and update the account balance
                 String validateSql = "UPDATE checks SET isValidated = true WHERE checkId = ?";
-                try (PreparedStatement pstmtValidate = conn.prepareStatement(validateSql)) {
-                    pstmtValidate.setString(1, checkId);
-                    pstmtValidate.executeUpdate();
-                }
+                PreparedStatement pstmtValidate = conn.prepare(validateSql);
+                pstmtValidate.setString(1, checkId);
+                pstmtValidate.executeUpdate();
 
                 // Update the account balance
-                depositAmount(accountId, amount);
-            } else {
-                // Handle the case where the check does not exist or is already validated
-                throw new SQLException("Check validation failed: Check does not exist or is already validated.");
+                PreparedStatement pstmtCredit = conn.prepare(creditSql);
+                pstmtCredit.setLong(1, amount);
+                pstmtCredit.setString(2, accountId);
+                pstmtCredit.executeUpdate();
+                return accountId;
+            }), List::of);
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.VALIDATE_CHECK, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.VALIDATE_CHECK, start);
+        }
+    }
+
+    // Whether a check with this id is waiting for validation, used to route checks across shards
+    boolean hasPendingCheck(String checkId) throws SQLException {
+        String sql = "SELECT 1 FROM checks WHERE checkId = ? AND isValidated = false";
+        try (PooledConnection conn = pool.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, checkId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
             }
         }
     }
 
+    // Clears every listed check in one transaction, each account is credited once with the sum of its checks
+    public CheckClearingReport validateChecks(Collection<String> checkIds) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String findCheckSql = "SELECT amount, accountId, isValidated FROM checks WHERE checkId = ?";
+            return changeAccounts(() -> inWriteTransaction(conn -> {
+                CheckClearingReport report = new CheckClearingReport();
+                Map<String, List<String>> checksByAccount = new LinkedHashMap<>();
+                Map<String, Long> deltas = new LinkedHashMap<>();
+                PreparedStatement pstmtFind = conn.prepare(findCheckSql);
+                // A check listed twice is looked up and credited once
+                for (String checkId : new LinkedHashSet<>(checkIds)) {
+                    pstmtFind.setString(1, checkId);
+                    try (ResultSet rs = pstmtFind.executeQuery()) {
+                        if (!rs.next()) {
+                            report.record(checkId, CheckOutcome.NOT_FOUND);
+                        } else if (rs.getBoolean("isValidated")) {
+                            report.record(checkId, CheckOutcome.ALREADY_VALIDATED);
+                        } else {
+                            String accountId = rs.getString("accountId");
+                            checksByAccount.computeIfAbsent(accountId, id -> new ArrayList<>()).add(checkId);
+                            deltas.merge(accountId, rs.getLong("amount"), Long::sum);
+                        }
+                    }
+                }
+                applyClearing(conn, checksByAccount, deltas, report);
+                return report;
+            }), report -> report.getCreditedAmounts().keySet());
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.VALIDATE_CHECKS, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.VALIDATE_CHECKS, start);
+        }
+    }
+
+    public CheckClearingReport validateAllPendingForAccount(String accountId) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String pendingSql = "SELECT checkId, amount FROM checks WHERE accountId = ? AND isValidated = false";
+            return changeAccounts(() -> inWriteTransaction(conn -> {
+                CheckClearingReport report = new CheckClearingReport();
+                List<String> checkIds = new ArrayList<>();
+                long total = 0;
+                PreparedStatement pstmt = conn.prepare(pendingSql);
+                pstmt.setString(1, accountId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        checkIds.add(rs.getString("checkId"));
+                        total += rs.getLong("amount");
+                    }
+                }
+                Map<String, List<String>> checksByAccount = new LinkedHashMap<>();
+                Map<String, Long> deltas = new LinkedHashMap<>();
+                if (!checkIds.isEmpty()) {
+                    checksByAccount.put(accountId, checkIds);
+                    deltas.put(accountId, total);
+                }
+                applyClearing(conn, checksByAccount, deltas, report);
+                return report;
+            }), report -> report.getCreditedAmounts().keySet());
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.VALIDATE_ALL_PENDING_FOR_ACCOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.VALIDATE_ALL_PENDING_FOR_ACCOUNT, start);
+        }
+    }
+
+    private void applyClearing(PooledConnection conn, Map<String, List<String>> checksByAccount,
+                               Map<String, Long> deltas, CheckClearingReport report) throws SQLException {
+        String creditSql = "UPDATE accounts SET balance = balance + ? WHERE accountId = ?";
+        String validateSql = "UPDATE checks SET isValidated = true WHERE checkId = ?";
+        PreparedStatement credit = conn.prepare(creditSql);
+        PreparedStatement validate = conn.prepare(validateSql);
+        try {
+            for (Map.Entry<String, List<String>> entry : checksByAccount.entrySet()) {
+                String accountId = entry.getKey();
+                credit.setLong(1, deltas.get(accountId));
+                credit.setString(2, accountId);
+                if (credit.executeUpdate() == 0) {
+                    // Checks drawn on a missing account stay pending
+                    for (String checkId : entry.getValue()) {
+                        report.record(checkId, CheckOutcome.ACCOUNT_NOT_FOUND);
+                    }
+                    continue;
+                }
+                report.recordCredit(accountId, deltas.get(accountId));
+                for (String checkId : entry.getValue()) {
+                    validate.setString(1, checkId);
+                    validate.addBatch();
+                    report.record(checkId, CheckOutcome.CLEARED);
+                }
+            }
+            validate.executeBatch();
+        } finally {
+            validate.clearBatch();
+        }
+    }
+
     public List<Account> getAccountsForUser(String userId) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            List<Account> accounts = cache == null ? null : cache.getAccountsForUser(userId);
+            if (accounts == null) {
+                accounts = loadAccountsForUser(userId);
+            }
+            overlayLedgerBalances(accounts);
+            return accounts;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.GET_ACCOUNTS_FOR_USER, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.GET_ACCOUNTS_FOR_USER, start);
+        }
+    }
+
+    // One page of a user's accounts ordered by id, pass the last id of the previous page (or null) to continue
+    public List<Account> getAccountsForUser(String userId, String afterAccountId, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            List<Account> accounts = new ArrayList<>();
+            String sql = "SELECT accountId, balance, ownerId FROM accounts WHERE ownerId = ? AND accountId > ? "
+                    + "ORDER BY accountId LIMIT ?";
+            try (PooledConnection conn = pool.acquireReader()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, userId);
+                pstmt.setString(2, afterAccountId == null ? "" : afterAccountId);
+                pstmt.setInt(3, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        accounts.add(readAccount(rs));
+                    }
+                }
+            }
+            overlayLedgerBalances(accounts);
+            return accounts;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.GET_ACCOUNTS_FOR_USER_PAGE, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.GET_ACCOUNTS_FOR_USER_PAGE, start);
+        }
+    }
+
+    // Streams a user's accounts without materializing them, the stream must be closed to release its connection
+    public Stream<Account> streamAccountsForUser(String userId) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String sql = "SELECT accountId, balance, ownerId FROM accounts WHERE ownerId = ? ORDER BY accountId";
+            Stream<Account> accounts = stream(sql, userId, BankService::readAccount);
+            if (ledger == null) {
+                return accounts;
+            }
+            return accounts.map(account -> {
+                account.setBalance(ledger.balanceOr(account.getAccountId(), account.getBalance()));
+                return account;
+            });
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.STREAM_ACCOUNTS_FOR_USER, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.STREAM_ACCOUNTS_FOR_USER, start);
+        }
+    }
+
+    private void overlayLedgerBalances(List<Account> accounts) {
+        if (ledger != null) {
+            // The table may lag behind the ledger
+            for (Account account : accounts) {
+                account.setBalance(ledger.balanceOr(account.getAccountId(), account.getBalance()));
+            }
+        }
+    }
+
+    // Streamed queries use their own statement rather than the cache, since the cursor outlives the call
+    private <T> Stream<T> stream(String sql, String key, RowMapper<T> mapper) throws SQLException {
+        PooledConnection conn = pool.acquireReader();
+        PreparedStatement pstmt;
+        try {
+            pstmt = conn.getConnection().prepareStatement(sql);
+            pstmt.setFetchSize(config.getStreamFetchSize());
+            pstmt.setString(1, key);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return ResultSetStream.of(conn, pstmt, mapper);
+    }
+
+    static Account readAccount(ResultSet rs) throws SQLException {
+        return new Account(
+                rs.getString("accountId"),
+                rs.getLong("balance"),
+                rs.getString("ownerId")
+        );
+    }
+
+    static Check readCheck(ResultSet rs) throws SQLException {
+        return new Check(
+                rs.getString("checkId"),
+                rs.getLong("amount"),
+                rs.getString("accountId"),
+                rs.getBoolean("isValidated")
+        );
+    }
+
+    private List<Account> loadAccountsForUser(String userId) throws SQLException {
+        long generation = cache == null ? 0 : cache.beginRead();
         List<Account> accounts = new ArrayList<>();
         String sql = "SELECT accountId, balance, ownerId FROM accounts WHERE ownerId = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PooledConnection conn = pool.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
             pstmt.setString(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                Account account = new Account(
-                        rs.getString("accountId"),
-                        rs.getFloat("balance"),
-                        rs.getString("ownerId")
-                );
-                accounts.add(account);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Account account = readAccount(rs);
+                    accounts.add(account);
+                }
             }
         }
+        if (cache != null) {
+            cache.putAccountsForUser(userId, accounts, generation);
+        }
         return accounts;
     }
 
+    public Optional<Check> findCheck(String checkId) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String sql = "SELECT checkId, amount, accountId, isValidated FROM checks WHERE checkId = ?";
+            try (PooledConnection conn = pool.acquireReader()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, checkId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? Optional.of(readCheck(rs)) : Optional.empty();
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.FIND_CHECK, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.FIND_CHECK, start);
+        }
+    }
+
     public List<Check> getUnvalidatedChecksForAccount(String accountId) throws SQLException {
-        List<Check> checks = new ArrayList<>();
-        String sql = "SELECT checkId, amount, accountId, isValidated FROM checks WHERE accountId = ? AND isValidated = false";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, accountId);
-            ResultSet rs = pstmt.executeQuery();
+        long start = System.nanoTime();
+        try {
+            List<Check> checks = new ArrayList<>();
+            String sql = "SELECT checkId, amount, accountId, isValidated FROM checks WHERE accountId = ? AND isValidated = false";
+            try (PooledConnection conn = pool.acquireReader()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, accountId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Check check = readCheck(rs);
+                        checks.add(check);
+                    }
+                }
+            }
+            return checks;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.GET_UNVALIDATED_CHECKS_FOR_ACCOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.GET_UNVALIDATED_CHECKS_FOR_ACCOUNT, start);
+        }
+    }
+
+    public List<Check> getUnvalidatedChecksForAccount(String accountId, String afterCheckId, int limit)
+            throws SQLException {
+        long start = System.nanoTime();
+        try {
+            List<Check> checks = new ArrayList<>();
+            String sql = "SELECT checkId, amount, accountId, isValidated FROM checks "
+                    + "WHERE accountId = ? AND isValidated = false AND checkId > ? ORDER BY checkId LIMIT ?";
+            try (PooledConnection conn = pool.acquireReader()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, accountId);
+                pstmt.setString(2, afterCheckId == null ? "" : afterCheckId);
+                pstmt.setInt(3, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        checks.add(readCheck(rs));
+                    }
+                }
+            }
+            return checks;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.GET_UNVALIDATED_CHECKS_FOR_ACCOUNT_PAGE, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.GET_UNVALIDATED_CHECKS_FOR_ACCOUNT_PAGE, start);
+        }
+    }
+
+    public Stream<Check> streamUnvalidatedChecksForAccount(String accountId) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String sql = "SELECT checkId, amount, accountId, isValidated FROM checks "
+                    + "WHERE accountId = ? AND isValidated = false ORDER BY checkId";
+            return stream(sql, accountId, BankService::readCheck);
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.STREAM_UNVALIDATED_CHECKS_FOR_ACCOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.STREAM_UNVALIDATED_CHECKS_FOR_ACCOUNT, start);
+        }
+    }
+
+    // Sum of the user's balances, read from the summary the triggers keep current
+    public long getTotalBalanceForUser(String userId) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            // The summary only sees balances once the ledger has written them
+            flushLedger();
+            return readSummary("SELECT total FROM user_balances WHERE ownerId = ?", userId);
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.GET_TOTAL_BALANCE_FOR_USER, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.GET_TOTAL_BALANCE_FOR_USER, start);
+        }
+    }
+
+    public long getPendingCheckTotalForAccount(String accountId) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return readSummary("SELECT total FROM account_pending_checks WHERE accountId = ?", accountId);
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.GET_PENDING_CHECK_TOTAL_FOR_ACCOUNT, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.GET_PENDING_CHECK_TOTAL_FOR_ACCOUNT, start);
+        }
+    }
+
+    private long readSummary(String sql, String key) throws SQLException {
+        try (PooledConnection conn = pool.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, key);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
 
+    // Recomputes the balance summaries from the accounts and checks tables
+    public void rebuildSummaries() throws SQLException {
+        flushLedger();
+        inWriteTransaction(SchemaMigrator::rebuildSummaries);
+    }
+
+    // Compares the summaries with totals computed from scratch, returns one line per drifted entry
+    public List<String> verifySummaries() throws SQLException {
+        flushLedger();
+        String usersSql = "SELECT ownerId, SUM(actual) AS actual, SUM(summary) AS summary FROM ("
+                + "SELECT ownerId, balance AS actual, 0 AS summary FROM accounts "
+                + "UNION ALL SELECT ownerId, 0, total FROM user_balances) "
+                + "GROUP BY ownerId HAVING SUM(actual) <> SUM(summary)";
+        String checksSql = "SELECT accountId, SUM(actual) AS actual, SUM(summary) AS summary FROM ("
+                + "SELECT accountId, amount AS actual, 0 AS summary FROM checks WHERE isValidated = false "
+                + "UNION ALL SELECT accountId, 0, total FROM account_pending_checks) "
+                + "GROUP BY accountId HAVING SUM(actual) <> SUM(summary)";
+        // Both queries run in one transaction so they see the same state
+        return inWriteTransaction(conn -> {
+            List<String> drift = new ArrayList<>();
+            collectDrift(conn.prepare(usersSql), "user", drift);
+            collectDrift(conn.prepare(checksSql), "pending checks of account", drift);
+            return drift;
+        });
+    }
+
+    private static void collectDrift(PreparedStatement pstmt, String label, List<String> drift) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                Check check = new Check(
-                        rs.getString("checkId"),
-                        rs.getFloat("amount"),
-                        rs.getString("accountId"),
-                        rs.getBoolean("isValidated")
-                );
-                checks.add(check);
+                drift.add(label + " " + rs.getString(1) + ": summary " + rs.getLong("summary")
+                        + ", actual " + rs.getLong("actual"));
+            }
+        }
+    }
+
+    // Bulk methods, each chunk of batchChunkSize rows is written in its own transaction
+    public BatchResult depositAmounts(Map<String, Long> amounts) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String sql = "UPDATE accounts SET balance = balance + ? WHERE accountId = ?";
+            return changeAccounts(() -> executeBatch(sql, new ArrayList<>(amounts.entrySet()), Map.Entry::getKey,
+                    (pstmt, entry) -> {
+                        pstmt.setLong(1, entry.getValue());
+                        pstmt.setString(2, entry.getKey());
+                    }), result -> amounts.keySet());
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.DEPOSIT_AMOUNTS, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.DEPOSIT_AMOUNTS, start);
+        }
+    }
+
+    public BatchResult withdrawAmounts(Map<String, Long> amounts) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String sql = "UPDATE accounts SET balance = balance - ? WHERE accountId = ?";
+            return changeAccounts(() -> executeBatch(sql, new ArrayList<>(amounts.entrySet()), Map.Entry::getKey,
+                    (pstmt, entry) -> {
+                        pstmt.setLong(1, entry.getValue());
+                        pstmt.setString(2, entry.getKey());
+                    }), result -> amounts.keySet());
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.WITHDRAW_AMOUNTS, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.WITHDRAW_AMOUNTS, start);
+        }
+    }
+
+    public BatchResult addAccounts(Collection<Account> accounts) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String sql = "INSERT INTO accounts (accountId, balance, ownerId) VALUES (?, ?, ?)";
+            BatchResult result = changeAccounts(() -> executeBatch(sql, new ArrayList<>(accounts), Account::getAccountId,
+                    (pstmt, account) -> {
+                        pstmt.setString(1, account.getAccountId());
+                        pstmt.setLong(2, account.getBalance());
+                        pstmt.setString(3, account.getOwnerId());
+                    }), done -> accounts.stream().map(Account::getAccountId).collect(Collectors.toList()));
+            if (cache != null) {
+                accounts.forEach(account -> cache.invalidateOwner(account.getOwnerId()));
+            }
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.ADD_ACCOUNTS, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.ADD_ACCOUNTS, start);
+        }
+    }
+
+    public BatchResult depositChecks(Collection<Check> checks) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String sql = "INSERT INTO checks (checkId, amount, accountId, isValidated) VALUES (?, ?, ?, false)";
+            return executeBatch(sql, new ArrayList<>(checks), Check::getCheckId, (pstmt, check) -> {
+                pstmt.setString(1, check.getCheckId());
+                pstmt.setLong(2, check.getAmount());
+                pstmt.setString(3, check.getAccountId());
+            });
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.DEPOSIT_CHECKS, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.DEPOSIT_CHECKS, start);
+        }
+    }
+
+    private <T> BatchResult executeBatch(String sql, List<T> items, Function<T, String> key,
+                                         StatementBinder<T> binder) throws SQLException {
+        BatchResult result = new BatchResult();
+        int chunkSize = Math.max(1, config.getBatchChunkSize());
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            List<T> chunk = items.subList(from, Math.min(items.size(), from + chunkSize));
+            BatchResult chunkResult;
+            try {
+                chunkResult = inWriteTransaction(conn -> executeChunk(conn.prepare(sql), chunk, key, binder));
+            } catch (SQLException e) {
+                if (RetryPolicy.isBusy(e)) {
+                    throw e;
+                }
+                // The chunk was rolled back, replay it row by row so only the offending rows fail
+                chunkResult = inWriteTransaction(conn -> executeChunkRowByRow(conn.prepare(sql), chunk, key, binder));
             }
+            result.merge(chunkResult);
         }
-        return checks;
+        return result;
+    }
+
+    private <T> BatchResult executeChunk(PreparedStatement pstmt, List<T> chunk, Function<T, String> key,
+                                         StatementBinder<T> binder) throws SQLException {
+        BatchResult chunkResult = new BatchResult();
+        try {
+            for (T item : chunk) {
+                binder.bind(pstmt, item);
+                pstmt.addBatch();
+            }
+            int[] counts = pstmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    chunkResult.recordFailure(key.apply(chunk.get(i)), "No matching row.");
+                } else {
+                    chunkResult.recordSuccess();
+                }
+            }
+        } finally {
+            pstmt.clearBatch();
+        }
+        return chunkResult;
+    }
+
+    private <T> BatchResult executeChunkRowByRow(PreparedStatement pstmt, List<T> chunk, Function<T, String> key,
+                                                 StatementBinder<T> binder) throws SQLException {
+        BatchResult chunkResult = new BatchResult();
+        for (T item : chunk) {
+            try {
+                binder.bind(pstmt, item);
+                if (pstmt.executeUpdate() == 0) {
+                    chunkResult.recordFailure(key.apply(item), "No matching row.");
+                } else {
+                    chunkResult.recordSuccess();
+                }
+            } catch (SQLException e) {
+                if (RetryPolicy.isBusy(e)) {
+                    throw e;
+                }
+                chunkResult.recordFailure(key.apply(item), e.getMessage());
+            }
+        }
+        return chunkResult;
     }
 
     //Method  only used to clear the database
     public void removeCheck(String checkId) throws SQLException {
-        String sql = "DELETE FROM checks WHERE checkId = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, checkId);
-            pstmt.executeUpdate();
+        long start = System.nanoTime();
+        try {
+            String sql = "DELETE FROM checks WHERE checkId = ?";
+            try (PooledConnection conn = pool.acquireWriter()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, checkId);
+                pstmt.executeUpdate();
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(BankOperation.REMOVE_CHECK, e);
+            throw e;
+        } finally {
+            metrics.record(BankOperation.REMOVE_CHECK, start);
         }
     }
 }
@@ -0,0 +1,221 @@
+package com.example.project;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Non-blocking facade over BankService. Reads run on a fixed reader pool, every mutation is queued to a single
+// writer thread so concurrent callers never contend for SQLite's write lock: they wait in a bounded queue instead.
+// When the queue is full a caller blocks for up to asyncEnqueueTimeoutMillis, then gets a future failed with
+// RejectedExecutionException.
+//
+// Futures of mutations are completed on the writer thread, dependent work should use the *Async stages so it
+// does not hold up the queue. Closing the facade drains the queue but leaves the BankService connected.
+public class BankServiceAsync implements AutoCloseable {
+    private final BankService bankService;
+    private final BlockingQueue<WriteTask<?>> writeQueue;
+    private final long enqueueTimeoutMillis;
+    private final ExecutorService readers;
+    private final Thread writer;
+    private final AsyncMetrics metrics = new AsyncMetrics();
+    private volatile boolean closed;
+
+    public BankServiceAsync(BankService bankService) {
+        BankConfig config = bankService.getConfig();
+        this.bankService = bankService;
+        this.writeQueue = new ArrayBlockingQueue<>(Math.max(1, config.getAsyncWriteQueueCapacity()));
+        this.enqueueTimeoutMillis = config.getAsyncEnqueueTimeoutMillis();
+        AtomicInteger readerCount = new AtomicInteger();
+        this.readers = Executors.newFixedThreadPool(Math.max(1, config.getReaderPoolSize()), runnable -> {
+            Thread thread = new Thread(runnable, "bank-async-reader-" + readerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = new Thread(this::runWriter, "bank-async-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public AsyncMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getQueueDepth() {
+        return writeQueue.size();
+    }
+
+    // Reads
+    public CompletableFuture<Optional<Account>> findAccount(String accountId) {
+        return read(() -> bankService.findAccount(accountId));
+    }
+
+    public CompletableFuture<Optional<User>> findUser(String userId) {
+        return read(() -> bankService.findUser(userId));
+    }
+
+    public CompletableFuture<Boolean> authenticateUser(String userId, String password) {
+        return read(() -> bankService.authenticateUser(userId, password));
+    }
+
+    // Password hashing runs on the reader pool, the token check itself needs no thread hop
+    public CompletableFuture<Optional<String>> openSession(String userId, String password) {
+        return read(() -> bankService.openSession(userId, password));
+    }
+
+    public CompletableFuture<List<Account>> getAccountsForUser(String userId) {
+        return read(() -> bankService.getAccountsForUser(userId));
+    }
+
+    public CompletableFuture<List<Check>> getUnvalidatedChecksForAccount(String accountId) {
+        return read(() -> bankService.getUnvalidatedChecksForAccount(accountId));
+    }
+
+    // Mutations
+    public CompletableFuture<Void> addAccount(Account account) {
+        return write(() -> {
+            bankService.addAccount(account);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> depositAmount(String accountId, long amount) {
+        return write(() -> {
+            bankService.depositAmount(accountId, amount);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> withdrawAmount(String accountId, long amount) {
+        return write(() -> {
+            bankService.withdrawAmount(accountId, amount);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> transferAmount(String fromAccountId, String toAccountId, long amount) {
+        return write(() -> {
+            bankService.transferAmount(fromAccountId, toAccountId, amount);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> depositCheck(String checkId, String accountId, long amount) {
+        return write(() -> {
+            bankService.depositCheck(checkId, accountId, amount);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> validateCheck(String checkId) {
+        return write(() -> {
+            bankService.validateCheck(checkId);
+            return null;
+        });
+    }
+
+    // Stops accepting work, finishes every queued mutation and waits for in-flight reads
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+            WriteTask<?> task;
+            while ((task = writeQueue.poll()) != null) {
+                task.future.completeExceptionally(new RejectedExecutionException("BankServiceAsync is closed."));
+                metrics.recordRejected();
+            }
+            readers.shutdown();
+            readers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> read(SqlCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (closed) {
+            return reject(future, "BankServiceAsync is closed.");
+        }
+        metrics.recordRead();
+        try {
+            readers.execute(() -> complete(future, call));
+        } catch (RejectedExecutionException e) {
+            return reject(future, "BankServiceAsync is closed.");
+        }
+        return future;
+    }
+
+    private <T> CompletableFuture<T> write(SqlCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (closed) {
+            return reject(future, "BankServiceAsync is closed.");
+        }
+        long start = System.nanoTime();
+        WriteTask<T> task = new WriteTask<>(call, future);
+        try {
+            if (!writeQueue.offer(task, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return reject(future, "Write queue is full.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return reject(future, "Interrupted while waiting for room in the write queue.");
+        }
+        // Lost a race with close(): the writer has already drained the queue and stopped
+        if (closed && !writer.isAlive() && writeQueue.remove(task)) {
+            return reject(future, "BankServiceAsync is closed.");
+        }
+        metrics.recordWriteEnqueued(System.nanoTime() - start, writeQueue.size());
+        return future;
+    }
+
+    private <T> CompletableFuture<T> reject(CompletableFuture<T> future, String message) {
+        metrics.recordRejected();
+        future.completeExceptionally(new RejectedExecutionException(message));
+        return future;
+    }
+
+    private void runWriter() {
+        while (!closed || !writeQueue.isEmpty()) {
+            WriteTask<?> task;
+            try {
+                task = writeQueue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (task != null) {
+                task.run();
+                metrics.recordWriteCompleted();
+            }
+        }
+    }
+
+    private static <T> void complete(CompletableFuture<T> future, SqlCall<T> call) {
+        try {
+            future.complete(call.call());
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static final class WriteTask<T> {
+        private final SqlCall<T> call;
+        private final CompletableFuture<T> future;
+
+        private WriteTask(SqlCall<T> call, CompletableFuture<T> future) {
+            this.call = call;
+            this.future = future;
+        }
+
+        private void run() {
+            complete(future, call);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.project;
+
+import org.sqlite.SQLiteConnection;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Read-only, point-in-time copy of the database held in memory, for reports that would otherwise hold a live
+// connection for seconds. The copy is taken with SQLite's online backup API from a connection of its own, in a
+// single step, so it reads one consistent WAL snapshot and never blocks the live writer.
+//
+// A snapshot owns one connection, so calls on it run one at a time. Take one snapshot per report to run
+// reports in parallel.
+public class BankSnapshot implements AutoCloseable {
+    private final Connection connection;
+    private final long copyNanos;
+    private final long sizeBytes;
+    private final long takenAtMillis;
+
+    private BankSnapshot(Connection connection, long copyNanos, long sizeBytes, long takenAtMillis) {
+        this.connection = connection;
+        this.copyNanos = copyNanos;
+        this.sizeBytes = sizeBytes;
+        this.takenAtMillis = takenAtMillis;
+    }
+
+    static BankSnapshot copyOf(String databaseFile) throws SQLException {
+        long takenAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try {
+            // Copying every page in one step keeps the source read transaction open for the whole copy
+            ((SQLiteConnection) conn).getDatabase().restore("main", databaseFile, (remaining, pageCount) -> {
+            }, 0, 0, -1);
+            long copyNanos = System.nanoTime() - start;
+            long sizeBytes;
+            try (Statement stmt = conn.createStatement()) {
+                sizeBytes = queryLong(stmt, "PRAGMA page_count") * queryLong(stmt, "PRAGMA page_size");
+                stmt.execute("PRAGMA query_only = true");
+            }
+            return new BankSnapshot(conn, copyNanos, sizeBytes, takenAt);
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    public long getCopyMillis() {
+        return copyNanos / 1_000_000;
+    }
+
+    // Size of the copied pages held in memory
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getTakenAtMillis() {
+        return takenAtMillis;
+    }
+
+    public synchronized Optional<User> findUser(String userId) throws SQLException {
+        String sql = "SELECT id, password, role FROM users WHERE id = ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(new User(rs.getString("id"), rs.getString("password"), rs.getString("role")));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    public synchronized Optional<Account> findAccount(String accountId) throws SQLException {
+        String sql = "SELECT accountId, balance, ownerId FROM accounts WHERE accountId = ?";
+        List<Account> accounts = queryAccounts(sql, accountId);
+        return accounts.isEmpty() ? Optional.empty() : Optional.of(accounts.get(0));
+    }
+
+    public synchronized List<Account> getAccountsForUser(String userId) throws SQLException {
+        return queryAccounts("SELECT accountId, balance, ownerId FROM accounts WHERE ownerId = ? ORDER BY accountId",
+                userId);
+    }
+
+    public synchronized List<Check> getUnvalidatedChecksForAccount(String accountId) throws SQLException {
+        List<Check> checks = new ArrayList<>();
+        String sql = "SELECT checkId, amount, accountId, isValidated FROM checks "
+                + "WHERE accountId = ? AND isValidated = false ORDER BY checkId";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, accountId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    checks.add(BankService.readCheck(rs));
+                }
+            }
+        }
+        return checks;
+    }
+
+    // Aggregates
+    public synchronized long getAccountCount() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            return queryLong(stmt, "SELECT COUNT(*) FROM accounts");
+        }
+    }
+
+    public synchronized long getTotalBalance() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            return queryLong(stmt, "SELECT COALESCE(SUM(balance), 0) FROM accounts");
+        }
+    }
+
+    public synchronized long getPendingCheckTotal() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            return queryLong(stmt, "SELECT COALESCE(SUM(amount), 0) FROM checks WHERE isValidated = false");
+        }
+    }
+
+    // Total balance per owner, ordered by owner id
+    public synchronized Map<String, Long> getTotalBalanceByOwner() throws SQLException {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        String sql = "SELECT ownerId, SUM(balance) FROM accounts GROUP BY ownerId ORDER BY ownerId";
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                totals.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        return totals;
+    }
+
+    public synchronized List<Account> getLargestAccounts(int limit) throws SQLException {
+        List<Account> accounts = new ArrayList<>();
+        String sql = "SELECT accountId, balance, ownerId FROM accounts ORDER BY balance DESC, accountId LIMIT ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    accounts.add(BankService.readAccount(rs));
+                }
+            }
+        }
+        return accounts;
+    }
+
+    @Override
+    public synchronized void close() throws SQLException {
+        connection.close();
+    }
+
+    private List<Account> queryAccounts(String sql, String key) throws SQLException {
+        List<Account> accounts = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, key);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    accounts.add(BankService.readAccount(rs));
+                }
+            }
+        }
+        return accounts;
+    }
+
+    private static long queryLong(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.project;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Runs end-of-day jobs over every account. Each job is a stage; stages run one after the other, and within a stage
+// the accounts keyspace is split into key ranges worked by a fork-join pool of batchParallelism workers.
+//
+// A worker walks its range in chunks of batchJobChunkRows accounts. Reading and computing a chunk happens on a reader
+// connection, so workers overlap there; the chunk's writes then commit in one short transaction on the single
+// SQLite writer, together with the range's checkpoint in batch_progress. A run interrupted by a crash is resumed by
+// running it again with the same runId: finished ranges are skipped and the others continue after their last
+// committed chunk, so no account is processed twice.
+public class BatchEngine {
+    private final BankService bankService;
+    private final int parallelism;
+    private final int rangesPerWorker;
+    private final int chunkRows;
+
+    public BatchEngine(BankService bankService) {
+        BankConfig config = bankService.getConfig();
+        this.bankService = bankService;
+        this.parallelism = Math.max(1, config.getBatchParallelism());
+        this.rangesPerWorker = Math.max(1, config.getBatchRangesPerWorker());
+        this.chunkRows = Math.max(1, config.getBatchJobChunkRows());
+    }
+
+    // Runs the stages in order and returns one report per stage
+    public List<BatchStageReport> run(String runId, List<BatchJob<?>> jobs) throws SQLException {
+        // Jobs read balances from the database
+        bankService.flushLedger();
+        List<BatchStageReport> reports = new ArrayList<>();
+        for (BatchJob<?> job : jobs) {
+            reports.add(runStage(runId, job));
+        }
+        return reports;
+    }
+
+    private <T> BatchStageReport runStage(String runId, BatchJob<T> job) throws SQLException {
+        long start = System.nanoTime();
+        List<Range> ranges = ranges(runId, job.getName());
+        BatchStageReport report = new BatchStageReport(job.getName(), ranges.size());
+        long resumedRows = 0;
+        int resumedRanges = 0;
+        for (Range range : ranges) {
+            resumedRows += range.rowsScanned;
+            resumedRanges += range.done ? 1 : 0;
+        }
+        report.recordResumed(resumedRows, resumedRanges);
+        // Set when a range fails, the other workers stop after their current chunk
+        AtomicBoolean failed = new AtomicBoolean();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new RangeTask<>(runId, job, ranges, report, failed));
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+            awaitWorkers(pool);
+        }
+        report.recordElapsed(System.nanoTime() - start);
+        return report;
+    }
+
+    // Splits the ranges until each task holds one, so idle workers steal whole ranges from busy ones
+    private final class RangeTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String runId;
+        private final BatchJob<T> job;
+        private final List<Range> ranges;
+        private final BatchStageReport report;
+        private final AtomicBoolean failed;
+
+        private RangeTask(String runId, BatchJob<T> job, List<Range> ranges, BatchStageReport report,
+                          AtomicBoolean failed) {
+            this.runId = runId;
+            this.job = job;
+            this.ranges = ranges;
+            this.report = report;
+            this.failed = failed;
+        }
+
+        @Override
+        protected void compute() {
+            if (ranges.size() > 1) {
+                int middle = ranges.size() / 2;
+                invokeAll(new RangeTask<>(runId, job, ranges.subList(0, middle), report, failed),
+                        new RangeTask<>(runId, job, ranges.subList(middle, ranges.size()), report, failed));
+                return;
+            }
+            try {
+                process(runId, job, ranges.get(0), report, failed);
+            } catch (SQLException e) {
+                failed.set(true);
+                throw new UncheckedSQLException(e);
+            } catch (RuntimeException e) {
+                failed.set(true);
+                throw e;
+            }
+        }
+    }
+
+    private <T> void process(String runId, BatchJob<T> job, Range range, BatchStageReport report,
+                             AtomicBoolean failed) throws SQLException {
+        if (range.done) {
+            return;
+        }
+        String after = range.lastKey != null ? range.lastKey : range.lowerKey;
+        while (true) {
+            if (failed.get()) {
+                // Left unfinished, a rerun picks the range up after its last chunk
+                return;
+            }
+            List<String> accountIds;
+            T prepared;
+            try (PooledConnection conn = bankService.acquireReader()) {
+                accountIds = nextChunk(conn, after, range.upperKey);
+                if (accountIds.isEmpty()) {
+                    break;
+                }
+                prepared = job.prepare(conn, accountIds);
+            }
+            String last = accountIds.get(accountIds.size() - 1);
+            int changed = bankService.changeAccounts(() -> bankService.inWriteTransaction(conn -> {
+                int rows = job.apply(conn, prepared);
+                PreparedStatement checkpoint = conn.prepare("UPDATE batch_progress SET lastKey = ?, "
+                        + "rowsScanned = rowsScanned + ?, rowsChanged = rowsChanged + ? "
+                        + "WHERE runId = ? AND job = ? AND rangeIndex = ?");
+                checkpoint.setString(1, last);
+                checkpoint.setLong(2, accountIds.size());
+                checkpoint.setLong(3, rows);
+                checkpoint.setString(4, runId);
+                checkpoint.setString(5, job.getName());
+                checkpoint.setInt(6, range.index);
+                checkpoint.executeUpdate();
+                return rows;
+            }), rows -> accountIds);
+            report.recordChunk(accountIds.size(), changed);
+            after = last;
+        }
+        bankService.inWriteTransaction(conn -> {
+            PreparedStatement done = conn.prepare(
+                    "UPDATE batch_progress SET state = 'DONE' WHERE runId = ? AND job = ? AND rangeIndex = ?");
+            done.setString(1, runId);
+            done.setString(2, job.getName());
+            done.setInt(3, range.index);
+            return done.executeUpdate();
+        });
+    }
+
+    // A failed stage returns only once no worker is still writing, so it can be rerun straight away
+    private static void awaitWorkers(ForkJoinPool pool) {
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Account ids after the given key, up to and including the upper key; a null bound is open
+    private List<String> nextChunk(PooledConnection conn, String after, String upper) throws SQLException {
+        String sql = "SELECT accountId FROM accounts WHERE 1 = 1"
+                + (after == null ? "" : " AND accountId > ?")
+                + (upper == null ? "" : " AND accountId <= ?")
+                + " ORDER BY accountId LIMIT ?";
+        PreparedStatement pstmt = conn.prepare(sql);
+        int index = 1;
+        if (after != null) {
+            pstmt.setString(index++, after);
+        }
+        if (upper != null) {
+            pstmt.setString(index++, upper);
+        }
+        pstmt.setInt(index, chunkRows);
+        List<String> accountIds = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                accountIds.add(rs.getString(1));
+            }
+        }
+        return accountIds;
+    }
+
+    // The ranges checkpointed for this run and job, planned and saved first if the stage has not started yet.
+    // Boundaries are kept, since a resumed run must split the keyspace exactly as the interrupted one did
+    private List<Range> ranges(String runId, String job) throws SQLException {
+        return bankService.inWriteTransaction(conn -> {
+            List<Range> ranges = loadRanges(conn, runId, job);
+            if (!ranges.isEmpty()) {
+                return ranges;
+            }
+            List<String> boundaries = planBoundaries(conn);
+            PreparedStatement insert = conn.prepare("INSERT INTO batch_progress (runId, job, rangeIndex, lowerKey, "
+                    + "upperKey, lastKey, rowsScanned, rowsChanged, state) VALUES (?, ?, ?, ?, ?, NULL, 0, 0, 'RUNNING')");
+            for (int i = 0; i <= boundaries.size(); i++) {
+                insert.setString(1, runId);
+                insert.setString(2, job);
+                insert.setInt(3, i);
+                insert.setString(4, i == 0 ? null : boundaries.get(i - 1));
+                insert.setString(5, i == boundaries.size() ? null : boundaries.get(i));
+                insert.executeUpdate();
+            }
+            return loadRanges(conn, runId, job);
+        });
+    }
+
+    // Upper keys of every range but the last, which stays open so accounts added during the run are covered
+    private List<String> planBoundaries(PooledConnection conn) throws SQLException {
+        long accounts;
+        try (ResultSet rs = conn.prepare("SELECT COUNT(*) FROM accounts").executeQuery()) {
+            accounts = rs.next() ? rs.getLong(1) : 0;
+        }
+        // No point in ranges smaller than a chunk
+        long rangeCount = Math.max(1, Math.min((long) parallelism * rangesPerWorker, accounts / chunkRows));
+        List<String> boundaries = new ArrayList<>();
+        PreparedStatement pstmt = conn.prepare("SELECT accountId FROM accounts ORDER BY accountId LIMIT 1 OFFSET ?");
+        for (long i = 1; i < rangeCount; i++) {
+            pstmt.setLong(1, accounts * i / rangeCount - 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    boundaries.add(rs.getString(1));
+                }
+            }
+        }
+        return boundaries;
+    }
+
+    private static List<Range> loadRanges(PooledConnection conn, String runId, String job) throws SQLException {
+        PreparedStatement pstmt = conn.prepare("SELECT rangeIndex, lowerKey, upperKey, lastKey, rowsScanned, state "
+                + "FROM batch_progress WHERE runId = ? AND job = ? ORDER BY rangeIndex");
+        pstmt.setString(1, runId);
+        pstmt.setString(2, job);
+        List<Range> ranges = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ranges.add(new Range(rs.getInt("rangeIndex"), rs.getString("lowerKey"), rs.getString("upperKey"),
+                        rs.getString("lastKey"), rs.getLong("rowsScanned"), "DONE".equals(rs.getString("state"))));
+            }
+        }
+        return ranges;
+    }
+
+    // Accounts with lowerKey < accountId <= upperKey, as checkpointed when the stage was loaded
+    private static final class Range {
+        private final int index;
+        private final String lowerKey;
+        private final String upperKey;
+        private final String lastKey;
+        private final long rowsScanned;
+        private final boolean done;
+
+        private Range(int index, String lowerKey, String upperKey, String lastKey, long rowsScanned, boolean done) {
+            this.index = index;
+            this.lowerKey = lowerKey;
+            this.upperKey = upperKey;
+            this.lastKey = lastKey;
+            this.rowsScanned = rowsScanned;
+            this.done = done;
+        }
+    }
+}
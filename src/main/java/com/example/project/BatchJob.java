@@ -0,0 +1,20 @@
+package com.example.project;
+
+import java.sql.SQLException;
+import java.util.List;
+
+// One stage of an end-of-day run, see BatchEngine. The engine hands the job the accounts of its key range one chunk
+// at a time: prepare reads what the chunk needs on a reader connection and runs on several workers at once, apply
+// writes the result inside the chunk's transaction, which also checkpoints the chunk. apply must only touch the
+// given accounts, and should write relative changes (balance = balance + ?) so concurrent traffic is kept
+public interface BatchJob<T> {
+
+    // Names the stage in reports and checkpoints, must stay the same between a run and its resumption
+    String getName();
+
+    // accountIds are in key order
+    T prepare(PooledConnection conn, List<String> accountIds) throws SQLException;
+
+    // Returns the number of rows changed
+    int apply(PooledConnection conn, T prepared) throws SQLException;
+}
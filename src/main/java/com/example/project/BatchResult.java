@@ -0,0 +1,40 @@
+package com.example.project;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Outcome of a bulk operation, failed items are keyed by their id with the reason they were rejected
+public class BatchResult {
+    private int succeeded;
+    private final Map<String, String> failures = new LinkedHashMap<>();
+
+    void recordSuccess() {
+        succeeded++;
+    }
+
+    void recordFailure(String key, String reason) {
+        failures.put(key, reason);
+    }
+
+    void merge(BatchResult other) {
+        succeeded += other.succeeded;
+        failures.putAll(other.failures);
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failures.size();
+    }
+
+    public Map<String, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.project;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Outcome of one BatchEngine stage: accounts walked, rows the job changed and the time it took
+public class BatchStageReport {
+    private final String job;
+    private final int ranges;
+    private final LongAdder rowsScanned = new LongAdder();
+    private final LongAdder rowsChanged = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private long resumedRows;
+    private int resumedRanges;
+    private long elapsedNanos;
+
+    BatchStageReport(String job, int ranges) {
+        this.job = job;
+        this.ranges = ranges;
+    }
+
+    void recordChunk(long scanned, long changed) {
+        rowsScanned.add(scanned);
+        rowsChanged.add(changed);
+        chunks.increment();
+    }
+
+    void recordResumed(long rows, int completedRanges) {
+        resumedRows = rows;
+        resumedRanges = completedRanges;
+    }
+
+    void recordElapsed(long nanos) {
+        elapsedNanos = nanos;
+    }
+
+    public String getJob() {
+        return job;
+    }
+
+    public int getRanges() {
+        return ranges;
+    }
+
+    // Accounts walked by this run, not counting those a previous, interrupted run had already committed
+    public long getRowsScanned() {
+        return rowsScanned.sum();
+    }
+
+    public long getRowsChanged() {
+        return rowsChanged.sum();
+    }
+
+    public long getChunks() {
+        return chunks.sum();
+    }
+
+    public long getResumedRows() {
+        return resumedRows;
+    }
+
+    public int getResumedRanges() {
+        return resumedRanges;
+    }
+
+    public long getMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getRowsScanned() * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d rows scanned, %d changed in %d chunks over %d ranges in %d ms, %.0f rows/s"
+                        + " (%d rows in %d ranges resumed)", job, getRowsScanned(), getRowsChanged(), getChunks(), ranges,
+                getMillis(), getRowsPerSecond(), resumedRows, resumedRanges);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.project;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed-size Bloom filter over strings. mightContain never misses a key that was added; it answers true for
+// a key that was not added with a probability set by the bit count, the hash count and the number of keys.
+// Keys cannot be removed, a filter is rebuilt instead.
+class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bitMask;
+    private final int hashes;
+
+    // The bit count is rounded up to a power of two
+    BloomFilter(long bits, int hashes) {
+        long size = Long.highestOneBit(Math.max(64, bits - 1)) << 1;
+        this.words = new AtomicLongArray((int) (size >>> 6));
+        this.bitMask = size - 1;
+        this.hashes = Math.max(1, hashes);
+    }
+
+    void add(String key) {
+        long hash = hash(key);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            words.accumulateAndGet((int) (bit >>> 6), 1L << bit, (word, mask) -> word | mask);
+        }
+    }
+
+    boolean mightContain(String key) {
+        long hash = hash(key);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long getBitCount() {
+        return bitMask + 1;
+    }
+
+    // 64-bit FNV-1a with a final avalanche, String.hashCode alone is too weak to derive several bit positions
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.project;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+// Thread-safe LRU map with a per-entry time to live, removed entries are reported to the removal listener
+public class BoundedCache<K, V> {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final BiConsumer<K, V> removalListener;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public BoundedCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, (key, value) -> { });
+    }
+
+    public BoundedCache(int maxEntries, long ttlMillis, BiConsumer<K, V> removalListener) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.removalListener = removalListener;
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt > 0) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            removalListener.accept(key, entry.value);
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        Entry<V> previous = entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        if (previous != null) {
+            removalListener.accept(key, previous.value);
+        }
+        if (entries.size() > maxEntries) {
+            Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+            Map.Entry<K, Entry<V>> evicted = eldest.next();
+            eldest.remove();
+            evictions++;
+            removalListener.accept(evicted.getKey(), evicted.getValue().value);
+        }
+    }
+
+    public synchronized void remove(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            removalListener.accept(key, removed.value);
+        }
+    }
+
+    public synchronized void clear() {
+        for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+            removalListener.accept(entry.getKey(), entry.getValue().value);
+        }
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions, expirations, entries.size());
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
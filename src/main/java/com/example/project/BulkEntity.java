@@ -0,0 +1,45 @@
+package com.example.project;
+
+// Tables the bulk loader can import and export, with their columns in file order.
+// Column types: S is text, M is money in cents (a decimal in CSV), B is a boolean
+public enum BulkEntity {
+    USERS("users", new String[]{"id", "password", "role"}, "SSS"),
+    ACCOUNTS("accounts", new String[]{"accountId", "balance", "ownerId"}, "SMS"),
+    CHECKS("checks", new String[]{"checkId", "amount", "accountId", "isValidated"}, "SMSB");
+
+    private final String table;
+    private final String[] columns;
+    private final String types;
+
+    BulkEntity(String table, String[] columns, String types) {
+        this.table = table;
+        this.columns = columns;
+        this.types = types;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    char typeOf(int column) {
+        return types.charAt(column);
+    }
+
+    int columnCount() {
+        return columns.length;
+    }
+
+    String insertSql() {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + "?, ".repeat(columns.length - 1) + "?)";
+    }
+
+    // Ordered by primary key so an export is stable and can be compared
+    String selectSql() {
+        return "SELECT " + String.join(", ", columns) + " FROM " + table + " ORDER BY " + columns[0];
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.project;
+
+// CSV has a header line and money as decimals. BINARY is a DataOutputStream stream: the magic "BNK1", the entity
+// ordinal, then every row prefixed with a true marker and ended by a false one, money as longs of cents
+public enum BulkFormat {
+    CSV, BINARY
+}
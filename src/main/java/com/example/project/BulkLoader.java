@@ -0,0 +1,606 @@
+package com.example.project;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Imports and exports users, accounts and checks in CSV or a compact binary format.
+//
+// An import runs as a pipeline: a parser thread turns the input into batches of bulkTransactionRows rows and
+// hands them over a small bounded queue to the caller's thread, which inserts each batch in one transaction.
+// Indexes and triggers on the target table are dropped first and recreated at the end, the balance summaries are
+// then rebuilt, and a verify stage checks row counts and foreign keys.
+//
+// Each batch commits together with the job's progress in bulk_load_progress, so an import interrupted for any
+// reason is resumed by loading the same input under the same job id: rows already committed are skipped.
+// The dropped index and trigger definitions are kept in bulk_load_deferred until they are recreated, which
+// happens on failure too, and after a crash when the service starts again.
+//
+// The ledger is only paused while a batch commits, and reloads just that batch's accounts, so the service keeps
+// serving balances during a long import.
+public class BulkLoader {
+    private static final int BINARY_MAGIC = 0x424E4B31;
+    private static final int QUEUED_BATCHES = 4;
+    private static final List<Object[]> END = new ArrayList<>();
+
+    private final BankService bankService;
+    private final int transactionRows;
+    private final int fetchSize;
+
+    public BulkLoader(BankService bankService) {
+        this.bankService = bankService;
+        this.transactionRows = Math.max(1, bankService.getConfig().getBulkTransactionRows());
+        this.fetchSize = bankService.getConfig().getStreamFetchSize();
+    }
+
+    public BulkReport load(String jobId, BulkEntity entity, BulkFormat format, InputStream in)
+            throws SQLException, IOException {
+        BulkReport report = new BulkReport(entity);
+        long committed = startJob(jobId, entity);
+        if (committed < 0) {
+            // Already completed
+            report.recordResumed(rowsCommitted(jobId));
+            return report;
+        }
+        report.recordResumed(committed);
+        AtomicLong parsedRows = new AtomicLong();
+        try {
+            deferIndexes(jobId, entity);
+            long start = System.nanoTime();
+            try {
+                stream(jobId, entity, format, in, committed, parsedRows, report);
+            } catch (SQLException | RuntimeException e) {
+                // Leave the table fully indexed and summarized until the job is resumed
+                restoreIndexes(jobId, entity, false);
+                throw e;
+            }
+            report.recordStream(System.nanoTime() - start);
+            start = System.nanoTime();
+            restoreIndexes(jobId, entity, true);
+            report.recordIndex(System.nanoTime() - start);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            // Cached lists of accounts by owner do not know about the imported rows
+            bankService.clearCache();
+        }
+        long start = System.nanoTime();
+        verify(jobId, entity, parsedRows.get(), report);
+        report.recordVerify(System.nanoTime() - start);
+        return report;
+    }
+
+    // Streams the table in primary key order through one cursor, memory use does not grow with the table
+    public BulkReport export(BulkEntity entity, BulkFormat format, OutputStream out) throws SQLException, IOException {
+        bankService.flushLedger();
+        BulkReport report = new BulkReport(entity);
+        long start = System.nanoTime();
+        RowWriter writer = format == BulkFormat.CSV ? new CsvRowWriter(out, entity) : new BinaryRowWriter(out, entity);
+        try (PooledConnection conn = bankService.acquireReader();
+             PreparedStatement pstmt = conn.getConnection().prepareStatement(entity.selectSql())) {
+            pstmt.setFetchSize(fetchSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    writer.write(readRow(rs, entity));
+                    report.recordRows(1);
+                }
+            }
+        }
+        writer.finish();
+        report.recordStream(System.nanoTime() - start);
+        return report;
+    }
+
+    // Returns the rows already committed by this job, or -1 when it has completed
+    private long startJob(String jobId, BulkEntity entity) throws SQLException {
+        return bankService.inWriteTransaction(conn -> {
+            PreparedStatement find = conn.prepare("SELECT entity, rowsCommitted, state FROM bulk_load_progress WHERE jobId = ?");
+            find.setString(1, jobId);
+            try (ResultSet rs = find.executeQuery()) {
+                if (rs.next()) {
+                    if (!entity.name().equals(rs.getString("entity"))) {
+                        throw new SQLException("Bulk load job " + jobId + " was started for " + rs.getString("entity"));
+                    }
+                    return "DONE".equals(rs.getString("state")) ? -1 : rs.getLong("rowsCommitted");
+                }
+            }
+            PreparedStatement insert = conn.prepare("INSERT INTO bulk_load_progress (jobId, entity, rowsCommitted, state) "
+                    + "VALUES (?, ?, 0, 'LOADING')");
+            insert.setString(1, jobId);
+            insert.setString(2, entity.name());
+            insert.executeUpdate();
+            return 0L;
+        });
+    }
+
+    private long rowsCommitted(String jobId) throws SQLException {
+        return bankService.inWriteTransaction(conn -> {
+            PreparedStatement pstmt = conn.prepare("SELECT rowsCommitted FROM bulk_load_progress WHERE jobId = ?");
+            pstmt.setString(1, jobId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        });
+    }
+
+    // Drops the table's indexes and triggers, remembering their definitions. A resumed job finds them already saved
+    private void deferIndexes(String jobId, BulkEntity entity) throws SQLException {
+        bankService.inWriteTransaction(conn -> {
+            PreparedStatement saved = conn.prepare("SELECT COUNT(*) FROM bulk_load_deferred WHERE jobId = ?");
+            saved.setString(1, jobId);
+            try (ResultSet rs = saved.executeQuery()) {
+                if (rs.next() && rs.getLong(1) > 0) {
+                    return null;
+                }
+            }
+            List<String[]> definitions = new ArrayList<>();
+            // Automatic indexes backing primary keys have no SQL and stay in place
+            PreparedStatement find = conn.prepare("SELECT type, name, sql FROM sqlite_master "
+                    + "WHERE tbl_name = ? AND type IN ('index', 'trigger') AND sql IS NOT NULL");
+            find.setString(1, entity.getTable());
+            try (ResultSet rs = find.executeQuery()) {
+                while (rs.next()) {
+                    definitions.add(new String[]{rs.getString("type"), rs.getString("name"), rs.getString("sql")});
+                }
+            }
+            PreparedStatement save = conn.prepare("INSERT INTO bulk_load_deferred (jobId, name, sql) VALUES (?, ?, ?)");
+            try (Statement stmt = conn.getConnection().createStatement()) {
+                for (String[] definition : definitions) {
+                    save.setString(1, jobId);
+                    save.setString(2, definition[1]);
+                    save.setString(3, definition[2]);
+                    save.executeUpdate();
+                    stmt.execute("DROP " + definition[0].toUpperCase() + " IF EXISTS " + definition[1]);
+                }
+            }
+            return null;
+        });
+    }
+
+    // Recreates what every unfinished job dropped, for a service starting after a crash. Returns the number of
+    // indexes and triggers recreated
+    static int restoreDeferred(PooledConnection conn) throws SQLException {
+        List<String> definitions = new ArrayList<>();
+        try (ResultSet rs = conn.prepare("SELECT sql FROM bulk_load_deferred").executeQuery()) {
+            while (rs.next()) {
+                definitions.add(rs.getString(1));
+            }
+        }
+        if (definitions.isEmpty()) {
+            return 0;
+        }
+        try (Statement stmt = conn.getConnection().createStatement()) {
+            for (String definition : definitions) {
+                stmt.execute(definition);
+            }
+            stmt.executeUpdate("DELETE FROM bulk_load_deferred");
+        }
+        SchemaMigrator.rebuildSummaries(conn);
+        return definitions.size();
+    }
+
+    private void restoreIndexes(String jobId, BulkEntity entity, boolean completed) throws SQLException {
+        bankService.inWriteTransaction(conn -> {
+            PreparedStatement find = conn.prepare("SELECT sql FROM bulk_load_deferred WHERE jobId = ?");
+            find.setString(1, jobId);
+            List<String> definitions = new ArrayList<>();
+            try (ResultSet rs = find.executeQuery()) {
+                while (rs.next()) {
+                    definitions.add(rs.getString(1));
+                }
+            }
+            try (Statement stmt = conn.getConnection().createStatement()) {
+                for (String definition : definitions) {
+                    stmt.execute(definition);
+                }
+            }
+            // The summary triggers were off while rows went in
+            if (entity != BulkEntity.USERS) {
+                SchemaMigrator.rebuildSummaries(conn);
+            }
+            PreparedStatement forget = conn.prepare("DELETE FROM bulk_load_deferred WHERE jobId = ?");
+            forget.setString(1, jobId);
+            forget.executeUpdate();
+            if (completed) {
+                PreparedStatement done = conn.prepare("UPDATE bulk_load_progress SET state = 'DONE' WHERE jobId = ?");
+                done.setString(1, jobId);
+                done.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    private void stream(String jobId, BulkEntity entity, BulkFormat format, InputStream in, long skip,
+                        AtomicLong parsedRows, BulkReport report) throws SQLException {
+        BlockingQueue<List<Object[]>> batches = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+        AtomicReference<IOException> parseError = new AtomicReference<>();
+        Thread parser = new Thread(() -> parse(entity, format, in, skip, parsedRows, batches, parseError),
+                "bulk-load-parser");
+        parser.setDaemon(true);
+        parser.start();
+        try {
+            while (true) {
+                List<Object[]> batch = batches.take();
+                if (batch == END) {
+                    break;
+                }
+                insertBatch(jobId, entity, batch, skip + report.getRows());
+                report.recordRows(batch.size());
+            }
+            parser.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted during bulk load.", e);
+        } finally {
+            parser.interrupt();
+        }
+        if (parseError.get() != null) {
+            throw new UncheckedIOException(parseError.get());
+        }
+    }
+
+    private void parse(BulkEntity entity, BulkFormat format, InputStream in, long skip, AtomicLong parsedRows,
+                       BlockingQueue<List<Object[]>> batches, AtomicReference<IOException> parseError) {
+        try {
+            RowReader reader = format == BulkFormat.CSV ? new CsvRowReader(in, entity) : new BinaryRowReader(in, entity);
+            List<Object[]> batch = new ArrayList<>(transactionRows);
+            Object[] row;
+            while ((row = reader.next()) != null) {
+                if (parsedRows.incrementAndGet() <= skip) {
+                    continue;
+                }
+                // Passwords are imported as stored, plaintext or a hash the service can verify
+                if (entity == BulkEntity.USERS && PasswordHasher.isHash((String) row[1])
+                        && !PasswordHasher.isUsableHash((String) row[1])) {
+                    throw new IOException("Row " + parsedRows.get() + ": unusable password hash for user " + row[0]);
+                }
+                batch.add(row);
+                if (batch.size() == transactionRows) {
+                    batches.put(batch);
+                    batch = new ArrayList<>(transactionRows);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.put(batch);
+            }
+        } catch (IOException e) {
+            parseError.set(e);
+        } catch (InterruptedException e) {
+            // The consumer failed and stopped reading
+            return;
+        }
+        try {
+            batches.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void insertBatch(String jobId, BulkEntity entity, List<Object[]> batch, long firstRow) throws SQLException {
+        List<String> accountIds = new ArrayList<>();
+        if (entity == BulkEntity.ACCOUNTS) {
+            for (Object[] row : batch) {
+                accountIds.add((String) row[0]);
+            }
+        }
+        try {
+            // The ledger is paused for this batch only and picks up its new accounts
+            bankService.changeAccounts(() -> bankService.inWriteTransaction(conn -> {
+                PreparedStatement insert = conn.prepare(entity.insertSql());
+                try {
+                    for (Object[] row : batch) {
+                        bind(insert, row);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                } finally {
+                    insert.clearBatch();
+                }
+                PreparedStatement progress = conn.prepare(
+                        "UPDATE bulk_load_progress SET rowsCommitted = rowsCommitted + ? WHERE jobId = ?");
+                progress.setLong(1, batch.size());
+                progress.setString(2, jobId);
+                progress.executeUpdate();
+                return null;
+            }), done -> accountIds);
+        } catch (SQLException e) {
+            throw new SQLException("Bulk load " + jobId + " failed in rows " + (firstRow + 1) + " to "
+                    + (firstRow + batch.size()) + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void verify(String jobId, BulkEntity entity, long parsedRows, BulkReport report) throws SQLException {
+        long committed = rowsCommitted(jobId);
+        if (committed != parsedRows) {
+            report.recordProblem("Input holds " + parsedRows + " rows but " + committed + " were committed");
+        }
+        long violations = bankService.inWriteTransaction(conn -> {
+            try (Statement stmt = conn.getConnection().createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA foreign_key_check(" + entity.getTable() + ")")) {
+                long count = 0;
+                while (rs.next()) {
+                    count++;
+                }
+                return count;
+            }
+        });
+        if (violations > 0) {
+            report.recordProblem(violations + " rows of " + entity.getTable() + " reference a missing parent");
+        }
+        for (String drift : bankService.verifySummaries()) {
+            report.recordProblem("Summary drift, " + drift);
+        }
+    }
+
+    private static void bind(PreparedStatement pstmt, Object[] row) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            Object value = row[i];
+            if (value instanceof Long) {
+                pstmt.setLong(i + 1, (Long) value);
+            } else if (value instanceof Boolean) {
+                pstmt.setBoolean(i + 1, (Boolean) value);
+            } else {
+                pstmt.setString(i + 1, (String) value);
+            }
+        }
+    }
+
+    private static Object[] readRow(ResultSet rs, BulkEntity entity) throws SQLException {
+        Object[] row = new Object[entity.columnCount()];
+        for (int i = 0; i < row.length; i++) {
+            switch (entity.typeOf(i)) {
+                case 'M':
+                    row[i] = rs.getLong(i + 1);
+                    break;
+                case 'B':
+                    row[i] = rs.getBoolean(i + 1);
+                    break;
+                default:
+                    row[i] = rs.getString(i + 1);
+                    break;
+            }
+        }
+        return row;
+    }
+
+    private interface RowReader {
+        // Null once the input is exhausted
+        Object[] next() throws IOException;
+    }
+
+    private interface RowWriter {
+        void write(Object[] row) throws IOException;
+
+        // Flushes without closing the caller's stream
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowReader implements RowReader {
+        private final BufferedReader reader;
+        private final BulkEntity entity;
+        // Physical line where the last record started, and the next line to read: quoted fields may span lines
+        private long line;
+        private long nextLine = 1;
+
+        private CsvRowReader(InputStream in, BulkEntity entity) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+            this.entity = entity;
+            List<String> header = readRecord();
+            if (header == null || !header.equals(List.of(entity.getColumns()))) {
+                throw new IOException("Expected the CSV header " + String.join(",", entity.getColumns()));
+            }
+        }
+
+        @Override
+        public Object[] next() throws IOException {
+            List<String> fields = readRecord();
+            // Blank lines, such as a trailing one, hold no row
+            while (fields != null && fields.size() == 1 && fields.get(0).isEmpty()) {
+                fields = readRecord();
+            }
+            if (fields == null) {
+                return null;
+            }
+            if (fields.size() != entity.columnCount()) {
+                throw new IOException("Line " + line + ": expected " + entity.columnCount() + " fields, found "
+                        + fields.size());
+            }
+            Object[] row = new Object[fields.size()];
+            try {
+                for (int i = 0; i < row.length; i++) {
+                    String field = fields.get(i);
+                    switch (entity.typeOf(i)) {
+                        case 'M':
+                            row[i] = Money.parse(field);
+                            break;
+                        case 'B':
+                            row[i] = Boolean.parseBoolean(field.trim());
+                            break;
+                        default:
+                            row[i] = field;
+                            break;
+                    }
+                }
+            } catch (ArithmeticException | NumberFormatException e) {
+                throw new IOException("Line " + line + ": invalid amount", e);
+            }
+            return row;
+        }
+
+        // RFC 4180 fields: quoted fields may hold commas, doubled quotes and line breaks
+        private List<String> readRecord() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            line = nextLine;
+            int c;
+            while ((c = reader.read()) != -1) {
+                any = true;
+                if (c == '\n') {
+                    nextLine++;
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!any) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final BufferedWriter writer;
+        private final BulkEntity entity;
+
+        private CsvRowWriter(OutputStream out, BulkEntity entity) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+            this.entity = entity;
+            writer.write(String.join(",", entity.getColumns()));
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (entity.typeOf(i) == 'M') {
+                    writer.write(Money.format((Long) row[i]));
+                } else {
+                    writer.write(quote(String.valueOf(row[i])));
+                }
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private static String quote(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static final class BinaryRowReader implements RowReader {
+        private final DataInputStream in;
+        private final BulkEntity entity;
+
+        private BinaryRowReader(InputStream in, BulkEntity entity) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+            this.entity = entity;
+            if (this.in.readInt() != BINARY_MAGIC || this.in.readByte() != entity.ordinal()) {
+                throw new IOException("Not a binary " + entity.getTable() + " export.");
+            }
+        }
+
+        @Override
+        public Object[] next() throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+            Object[] row = new Object[entity.columnCount()];
+            for (int i = 0; i < row.length; i++) {
+                switch (entity.typeOf(i)) {
+                    case 'M':
+                        row[i] = in.readLong();
+                        break;
+                    case 'B':
+                        row[i] = in.readBoolean();
+                        break;
+                    default:
+                        row[i] = in.readUTF();
+                        break;
+                }
+            }
+            return row;
+        }
+    }
+
+    private static final class BinaryRowWriter implements RowWriter {
+        private final DataOutputStream out;
+        private final BulkEntity entity;
+
+        private BinaryRowWriter(OutputStream out, BulkEntity entity) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            this.entity = entity;
+            this.out.writeInt(BINARY_MAGIC);
+            this.out.writeByte(entity.ordinal());
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            out.writeBoolean(true);
+            for (int i = 0; i < row.length; i++) {
+                switch (entity.typeOf(i)) {
+                    case 'M':
+                        out.writeLong((Long) row[i]);
+                        break;
+                    case 'B':
+                        out.writeBoolean((Boolean) row[i]);
+                        break;
+                    default:
+                        out.writeUTF((String) row[i]);
+                        break;
+                }
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.writeBoolean(false);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of a bulk import or export: row counts, time spent per stage and any problem found by verification
+public class BulkReport {
+    private final BulkEntity entity;
+    private long rows;
+    private long resumedRows;
+    private long streamNanos;
+    private long indexNanos;
+    private long verifyNanos;
+    private final List<String> problems = new ArrayList<>();
+
+    BulkReport(BulkEntity entity) {
+        this.entity = entity;
+    }
+
+    void recordRows(long count) {
+        rows += count;
+    }
+
+    void recordResumed(long count) {
+        resumedRows = count;
+    }
+
+    void recordStream(long nanos) {
+        streamNanos = nanos;
+    }
+
+    void recordIndex(long nanos) {
+        indexNanos = nanos;
+    }
+
+    void recordVerify(long nanos) {
+        verifyNanos = nanos;
+    }
+
+    void recordProblem(String problem) {
+        problems.add(problem);
+    }
+
+    public BulkEntity getEntity() {
+        return entity;
+    }
+
+    // Rows imported or exported by this run
+    public long getRows() {
+        return rows;
+    }
+
+    // Rows a previous, interrupted run had already committed
+    public long getResumedRows() {
+        return resumedRows;
+    }
+
+    // Time spent moving rows between the file and the tables
+    public long getStreamMillis() {
+        return streamNanos / 1_000_000;
+    }
+
+    public long getIndexMillis() {
+        return indexNanos / 1_000_000;
+    }
+
+    public long getVerifyMillis() {
+        return verifyNanos / 1_000_000;
+    }
+
+    public double getRowsPerSecond() {
+        return streamNanos == 0 ? 0 : rows * 1e9 / streamNanos;
+    }
+
+    public List<String> getProblems() {
+        return Collections.unmodifiableList(problems);
+    }
+
+    public boolean isVerified() {
+        return problems.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d rows (%d resumed) in %d ms, %.0f rows/s, indexes %d ms, verify %d ms, %s",
+                entity.getTable(), rows, resumedRows, getStreamMillis(), getRowsPerSecond(), getIndexMillis(),
+                getVerifyMillis(), problems.isEmpty() ? "verified" : problems);
+    }
+}
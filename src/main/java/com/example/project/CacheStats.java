@@ -0,0 +1,23 @@
+package com.example.project;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+@Data
+@Getter
+@Setter
+@AllArgsConstructor
+public class CacheStats {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private int size;
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -11,7 +11,7 @@ import lombok.Setter;
 @AllArgsConstructor
 public class Check {
     private String checkId;
-    private Float amount;
+    private long amount;
     private String accountId;
     private Boolean isValidated;
 }
@@ -0,0 +1,60 @@
+package com.example.project;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Clears every check still pending on the chunk's accounts and credits them. Checks carry no clearing date, so the
+// end-of-day run clears all checks deposited before it reached the account
+public class CheckClearingJob implements BatchJob<List<Check>> {
+
+    @Override
+    public String getName() {
+        return "check-clearing";
+    }
+
+    @Override
+    public List<Check> prepare(PooledConnection conn, List<String> accountIds) throws SQLException {
+        String sql = "SELECT checkId, amount, accountId FROM checks "
+                + "WHERE accountId >= ? AND accountId <= ? AND isValidated = false";
+        Set<String> chunk = new HashSet<>(accountIds);
+        List<Check> checks = new ArrayList<>();
+        PreparedStatement pstmt = conn.prepare(sql);
+        pstmt.setString(1, accountIds.get(0));
+        pstmt.setString(2, accountIds.get(accountIds.size() - 1));
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                String accountId = rs.getString("accountId");
+                if (chunk.contains(accountId)) {
+                    checks.add(new Check(rs.getString("checkId"), rs.getLong("amount"), accountId, false));
+                }
+            }
+        }
+        return checks;
+    }
+
+    // Returns the number of checks cleared
+    @Override
+    public int apply(PooledConnection conn, List<Check> checks) throws SQLException {
+        PreparedStatement validate = conn.prepare("UPDATE checks SET isValidated = true "
+                + "WHERE checkId = ? AND isValidated = false");
+        PreparedStatement credit = conn.prepare("UPDATE accounts SET balance = balance + ? WHERE accountId = ?");
+        int cleared = 0;
+        for (Check check : checks) {
+            validate.setString(1, check.getCheckId());
+            // Skips checks validated by a client call since prepare read them
+            if (validate.executeUpdate() == 0) {
+                continue;
+            }
+            credit.setLong(1, check.getAmount());
+            credit.setString(2, check.getAccountId());
+            credit.executeUpdate();
+            cleared++;
+        }
+        return cleared;
+    }
+}
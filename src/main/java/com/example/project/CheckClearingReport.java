@@ -0,0 +1,35 @@
+package com.example.project;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Per-check outcome of a clearing run along with the amount credited to each account
+public class CheckClearingReport {
+    private final Map<String, CheckOutcome> outcomes = new LinkedHashMap<>();
+    private final Map<String, Long> creditedAmounts = new LinkedHashMap<>();
+
+    void record(String checkId, CheckOutcome outcome) {
+        outcomes.put(checkId, outcome);
+    }
+
+    void recordCredit(String accountId, long amount) {
+        creditedAmounts.put(accountId, amount);
+    }
+
+    public Map<String, CheckOutcome> getOutcomes() {
+        return Collections.unmodifiableMap(outcomes);
+    }
+
+    public Map<String, Long> getCreditedAmounts() {
+        return Collections.unmodifiableMap(creditedAmounts);
+    }
+
+    public CheckOutcome getOutcome(String checkId) {
+        return outcomes.get(checkId);
+    }
+
+    public long count(CheckOutcome outcome) {
+        return outcomes.values().stream().filter(outcome::equals).count();
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.project;
+
+public enum CheckOutcome {
+    CLEARED,
+    ALREADY_VALIDATED,
+    NOT_FOUND,
+    ACCOUNT_NOT_FOUND
+}
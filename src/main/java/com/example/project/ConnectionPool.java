@@ -0,0 +1,225 @@
+package com.example.project;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded pool of read connections plus one dedicated writer, the database runs in WAL mode
+// so readers never wait behind the writer. Every connection gets the pragmas of the configured DurabilityProfile
+public class ConnectionPool implements AutoCloseable {
+    private final BankConfig config;
+    private final boolean sharedMemory;
+    private final Semaphore readerPermits;
+    private final ConcurrentLinkedQueue<PooledConnection> idleReaders = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writerLock = new ReentrantLock(true);
+    private final PooledConnection writer;
+    private final PoolMetrics metrics = new PoolMetrics();
+    private final WalCheckpointer checkpointer;
+    private volatile boolean closed;
+
+    public ConnectionPool(BankConfig config) throws SQLException {
+        this.config = config;
+        // Every connection to a private in-memory database sees its own database, so readers share the writer
+        this.sharedMemory = config.getUrl().contains(":memory:") || config.getUrl().contains("mode=memory");
+        this.readerPermits = new Semaphore(Math.max(1, config.getReaderPoolSize()), true);
+        Connection conn = DriverManager.getConnection(config.getUrl());
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                if (!sharedMemory) {
+                    stmt.execute("PRAGMA journal_mode = WAL");
+                    stmt.execute("PRAGMA journal_size_limit = " + config.getWalSizeLimitBytes());
+                }
+            }
+            configure(conn);
+            validate(conn);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        this.writer = new PooledConnection(this, conn, true,
+                new StatementCache(conn, config.getStatementCacheSize(), metrics));
+        this.checkpointer = sharedMemory || config.getWalCheckpointIntervalMillis() <= 0
+                ? null : new WalCheckpointer(config, metrics);
+    }
+
+    public PooledConnection acquireReader() throws SQLException {
+        // A thread holding the writer must read its own uncommitted changes
+        if (sharedMemory || writerLock.isHeldByCurrentThread()) {
+            return acquireWriter();
+        }
+        ensureOpen();
+        long start = System.nanoTime();
+        try {
+            if (!readerPermits.tryAcquire(config.getCheckoutTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                metrics.recordTimeout();
+                throw new SQLException("Timed out waiting for a read connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection.", e);
+        }
+        PooledConnection reader = idleReaders.poll();
+        if (reader == null) {
+            try {
+                reader = openReader();
+            } catch (SQLException e) {
+                readerPermits.release();
+                throw e;
+            }
+        }
+        metrics.recordReaderCheckout(System.nanoTime() - start);
+        return reader;
+    }
+
+    public PooledConnection acquireWriter() throws SQLException {
+        ensureOpen();
+        long start = System.nanoTime();
+        try {
+            if (!writerLock.tryLock(config.getCheckoutTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                metrics.recordTimeout();
+                throw new SQLException("Timed out waiting for the write connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the write connection.", e);
+        }
+        if (writerLock.getHoldCount() == 1) {
+            metrics.recordWriterCheckout(System.nanoTime() - start);
+        }
+        return writer;
+    }
+
+    void release(PooledConnection pooled) {
+        if (pooled.isWriter()) {
+            if (writerLock.getHoldCount() == 1) {
+                metrics.recordWriterReturn();
+            }
+            writerLock.unlock();
+            return;
+        }
+        metrics.recordReaderReturn();
+        if (closed) {
+            closeQuietly(pooled);
+        } else {
+            idleReaders.offer(pooled);
+        }
+        readerPermits.release();
+    }
+
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    public String getUrl() {
+        return config.getUrl();
+    }
+
+    public boolean isInMemory() {
+        return sharedMemory;
+    }
+
+    // Current values of the journal mode and the profile's pragmas, as read back from the writer
+    public Map<String, String> readSettings() throws SQLException {
+        try (PooledConnection conn = acquireWriter()) {
+            Map<String, String> settings = new LinkedHashMap<>();
+            settings.put("journal_mode", readPragma(conn.getConnection(), "journal_mode"));
+            for (String name : config.getDurabilityProfile().pragmas().keySet()) {
+                settings.put(name, readPragma(conn.getConnection(), name));
+            }
+            return settings;
+        }
+    }
+
+    // Runs a WAL checkpoint now and returns the frames it copied, 0 when the scheduler is disabled
+    public int checkpoint() throws SQLException {
+        return checkpointer == null ? 0 : checkpointer.checkpoint();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        closed = true;
+        if (checkpointer != null) {
+            checkpointer.close();
+        }
+        PooledConnection reader;
+        while ((reader = idleReaders.poll()) != null) {
+            closeQuietly(reader);
+        }
+        writerLock.lock();
+        try {
+            writer.closeConnection();
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private PooledConnection openReader() throws SQLException {
+        Connection conn = DriverManager.getConnection(config.getUrl());
+        try {
+            configure(conn);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        metrics.recordReaderOpened();
+        return new PooledConnection(this, conn, false,
+                new StatementCache(conn, config.getStatementCacheSize(), metrics));
+    }
+
+    private void configure(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + config.getBusyTimeoutMillis());
+            for (Map.Entry<String, String> pragma : config.getDurabilityProfile().pragmas().entrySet()) {
+                stmt.execute("PRAGMA " + pragma.getKey() + " = " + pragma.getValue());
+            }
+        }
+    }
+
+    // SQLite ignores pragmas it cannot honour, so read them back rather than trust that they were applied
+    private void validate(Connection conn) throws SQLException {
+        if (!sharedMemory && !"wal".equalsIgnoreCase(readPragma(conn, "journal_mode"))) {
+            throw new SQLException("Database could not be switched to WAL mode.");
+        }
+        for (Map.Entry<String, String> pragma : config.getDurabilityProfile().pragmas().entrySet()) {
+            // In-memory databases are never memory-mapped
+            if (sharedMemory && pragma.getKey().equals("mmap_size")) {
+                continue;
+            }
+            String actual = readPragma(conn, pragma.getKey());
+            if (!pragma.getValue().equals(actual)) {
+                throw new SQLException("PRAGMA " + pragma.getKey() + " is " + actual + " instead of "
+                        + pragma.getValue() + " required by the " + config.getDurabilityProfile() + " profile.");
+            }
+        }
+    }
+
+    private static String readPragma(Connection conn, String name) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA " + name)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    private void closeQuietly(PooledConnection pooled) {
+        try {
+            pooled.closeConnection();
+            metrics.recordReaderClosed();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.project;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Per-connection SQLite settings trading durability for speed. Every profile runs in WAL mode since the pool
+// relies on readers not blocking behind the writer.
+public enum DurabilityProfile {
+    // synchronous=FULL: every commit is on disk before it returns
+    STRICT(2, -2000, 0, 0),
+    // synchronous=NORMAL: commits survive a process crash, the last few may be lost on power failure
+    BALANCED(1, -2000, 0, 0),
+    // BALANCED plus a 64 MiB page cache, 256 MiB of memory-mapped I/O and temporary tables kept in memory
+    THROUGHPUT(1, -65536, 256L * 1024 * 1024, 2);
+
+    private final int synchronous;
+    private final int cacheSize;
+    private final long mmapSize;
+    private final int tempStore;
+
+    DurabilityProfile(int synchronous, int cacheSize, long mmapSize, int tempStore) {
+        this.synchronous = synchronous;
+        this.cacheSize = cacheSize;
+        this.mmapSize = mmapSize;
+        this.tempStore = tempStore;
+    }
+
+    // Pragma names and the values PRAGMA reads back once they are applied
+    public Map<String, String> pragmas() {
+        Map<String, String> pragmas = new LinkedHashMap<>();
+        pragmas.put("synchronous", String.valueOf(synchronous));
+        pragmas.put("cache_size", String.valueOf(cacheSize));
+        pragmas.put("mmap_size", String.valueOf(mmapSize));
+        pragmas.put("temp_store", String.valueOf(tempStore));
+        return pragmas;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.project;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Coalesces balance mutations from concurrent callers into shared transactions so one commit, and one fsync,
+// covers a whole group. The first pending mutation opens a window; everything that arrives within it, up to the
+// maximum group size, runs in the same transaction. Each mutation runs under its own savepoint, so a failing one
+// is rolled back alone and reported to its caller while the rest of the group commits. Callers are released only
+// after COMMIT returns, which keeps the per-call durability of autocommit.
+class GroupCommitter implements AutoCloseable {
+    private final BankService bankService;
+    private final long windowNanos;
+    private final int maxGroupSize;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private final LongAdder groups = new LongAdder();
+    private final LongAdder mutations = new LongAdder();
+    private volatile boolean closed;
+
+    GroupCommitter(BankService bankService, long windowMicros, int maxGroupSize) {
+        this.bankService = bankService;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, windowMicros));
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+        this.committer = new Thread(this::run, "group-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    // Blocks until the group holding this mutation has committed, then returns the mutation's result or rethrows
+    // its own failure
+    @SuppressWarnings("unchecked")
+    <T> T execute(SqlWork<T> work) throws SQLException {
+        if (closed) {
+            throw new SQLException("Group commit is shut down.");
+        }
+        Pending pending = new Pending(work);
+        queue.add(pending);
+        // close() may have drained the queue between the check above and the add. Whoever removes the mutation
+        // answers it: if it is still queued, nothing else will
+        if (closed && queue.remove(pending)) {
+            throw new SQLException("Group commit is shut down.");
+        }
+        try {
+            return (T) pending.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the group commit.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(e.getCause());
+        }
+    }
+
+    long getGroups() {
+        return groups.sum();
+    }
+
+    long getMutations() {
+        return mutations.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything that slipped in after the committer stopped still gets its answer
+        List<Pending> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        if (!leftover.isEmpty()) {
+            commit(leftover);
+        }
+    }
+
+    private void run() {
+        List<Pending> group = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (group.size() < maxGroupSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                commit(group);
+                return;
+            }
+            commit(group);
+            group.clear();
+        }
+    }
+
+    private void commit(List<Pending> group) {
+        try {
+            bankService.inWriteTransaction(conn -> {
+                PreparedStatement savepoint = conn.prepare("SAVEPOINT mutation");
+                PreparedStatement release = conn.prepare("RELEASE mutation");
+                PreparedStatement rollback = conn.prepare("ROLLBACK TO mutation");
+                for (Pending pending : group) {
+                    // A retried group starts from scratch
+                    pending.error = null;
+                    savepoint.execute();
+                    try {
+                        pending.result = pending.work.run(conn);
+                    } catch (SQLException e) {
+                        if (RetryPolicy.isBusy(e)) {
+                            throw e;
+                        }
+                        rollback.execute();
+                        pending.error = e;
+                    }
+                    release.execute();
+                }
+                return null;
+            });
+        } catch (SQLException | RuntimeException e) {
+            for (Pending pending : group) {
+                pending.future.completeExceptionally(e);
+            }
+            return;
+        }
+        groups.increment();
+        mutations.add(group.size());
+        for (Pending pending : group) {
+            if (pending.error == null) {
+                pending.future.complete(pending.result);
+            } else {
+                pending.future.completeExceptionally(pending.error);
+            }
+        }
+    }
+
+    private static final class Pending {
+        private final SqlWork<?> work;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private Object result;
+        private SQLException error;
+
+        private Pending(SqlWork<?> work) {
+            this.work = work;
+        }
+    }
+}
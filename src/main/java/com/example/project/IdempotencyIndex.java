@@ -0,0 +1,170 @@
+package com.example.project;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Remembers which idempotency keys have been used. The idempotency_keys table is the record: a key is claimed
+// in the same transaction as the balance change it guards, so the two commit or roll back together, and its
+// primary key settles concurrent claims of the same key.
+//
+// Two in-memory structures keep lookups off the disk. Recently used keys sit in an LRU, which answers retries
+// without touching SQLite. Every live key is also in a Bloom filter: a key the filter has never seen is new
+// for certain and goes straight to the write, only a possible match is looked up in the table. Keys older than
+// the retention are deleted on a schedule, after which the filter is rebuilt from the keys that are left.
+class IdempotencyIndex implements AutoCloseable {
+    private static final int BLOOM_HASHES = 7;
+
+    private final BankService bankService;
+    private final long retentionMillis;
+    private final long bloomBits;
+    private final BoundedCache<String, String> recent;
+    private final ScheduledExecutorService expirer;
+    private final LongAdder recentHits = new LongAdder();
+    private final LongAdder filterNegatives = new LongAdder();
+    private final LongAdder diskLookups = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private volatile BloomFilter filter;
+
+    IdempotencyIndex(BankService bankService, BankConfig config) throws SQLException {
+        this.bankService = bankService;
+        this.retentionMillis = config.getIdempotencyRetentionMillis();
+        this.bloomBits = config.getIdempotencyBloomBits();
+        this.recent = new BoundedCache<>(config.getIdempotencyCacheEntries(), retentionMillis);
+        this.filter = loadFilter();
+        long interval = config.getIdempotencyExpiryIntervalMillis();
+        if (interval > 0) {
+            this.expirer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "idempotency-expirer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            expirer.scheduleWithFixedDelay(this::expireQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.expirer = null;
+        }
+    }
+
+    // True when the key has already been used for this request, checked without taking the writer.
+    // False means the key may be new; claim decides for good inside the write transaction
+    boolean isKnownDuplicate(String key, String request) throws SQLException {
+        String stored = recent.get(key);
+        if (stored != null) {
+            recentHits.increment();
+            checkSameRequest(key, stored, request);
+            return true;
+        }
+        if (!filter.mightContain(key)) {
+            filterNegatives.increment();
+            return false;
+        }
+        diskLookups.increment();
+        try (PooledConnection conn = bankService.acquireReader()) {
+            stored = find(conn, key);
+        }
+        if (stored == null) {
+            return false;
+        }
+        recent.put(key, stored);
+        checkSameRequest(key, stored, request);
+        return true;
+    }
+
+    // Records the key on the writer's transaction. Returns false when the key was claimed before, in which
+    // case the guarded change must be skipped
+    boolean claim(PooledConnection conn, String key, String request) throws SQLException {
+        PreparedStatement insert = conn.prepare(
+                "INSERT OR IGNORE INTO idempotency_keys (idempotencyKey, request, createdAt) VALUES (?, ?, ?)");
+        insert.setString(1, key);
+        insert.setString(2, request);
+        insert.setLong(3, System.currentTimeMillis());
+        if (insert.executeUpdate() == 1) {
+            return true;
+        }
+        checkSameRequest(key, find(conn, key), request);
+        return false;
+    }
+
+    // Called once the claiming transaction has committed
+    void remember(String key, String request) {
+        filter.add(key);
+        recent.put(key, request);
+    }
+
+    // Deletes the keys past their retention and returns how many were removed
+    int expire() throws SQLException {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        int removed = bankService.inWriteTransaction(conn -> {
+            PreparedStatement delete = conn.prepare("DELETE FROM idempotency_keys WHERE createdAt < ?");
+            delete.setLong(1, cutoff);
+            return delete.executeUpdate();
+        });
+        if (removed > 0) {
+            expired.add(removed);
+            // A key claimed while the new filter loads may be missing from it, which only costs that key
+            // its fast path: the primary key still rejects the duplicate
+            filter = loadFilter();
+        }
+        return removed;
+    }
+
+    IdempotencyStats getStats() {
+        return new IdempotencyStats(recentHits.sum(), filterNegatives.sum(), diskLookups.sum(),
+                duplicates.sum(), expired.sum());
+    }
+
+    @Override
+    public void close() {
+        if (expirer == null) {
+            return;
+        }
+        expirer.shutdown();
+        try {
+            expirer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Replaying a key with other arguments is a client bug, not a retry
+    private void checkSameRequest(String key, String stored, String request) throws SQLException {
+        if (!stored.equals(request)) {
+            throw new SQLException("Idempotency key " + key + " was already used for a different request.");
+        }
+        duplicates.increment();
+    }
+
+    private BloomFilter loadFilter() throws SQLException {
+        BloomFilter loaded = new BloomFilter(bloomBits, BLOOM_HASHES);
+        try (PooledConnection conn = bankService.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare("SELECT idempotencyKey FROM idempotency_keys");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    loaded.add(rs.getString(1));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private static String find(PooledConnection conn, String key) throws SQLException {
+        PreparedStatement pstmt = conn.prepare("SELECT request FROM idempotency_keys WHERE idempotencyKey = ?");
+        pstmt.setString(1, key);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    private void expireQuietly() {
+        try {
+            expire();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
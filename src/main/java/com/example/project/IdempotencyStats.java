@@ -0,0 +1,20 @@
+package com.example.project;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+// How idempotency keys were resolved: from the recent-key cache, by the Bloom filter ruling the key out, or
+// with a lookup in the idempotency_keys table
+@Data
+@Getter
+@Setter
+@AllArgsConstructor
+public class IdempotencyStats {
+    private long recentHits;
+    private long filterNegatives;
+    private long diskLookups;
+    private long duplicates;
+    private long expired;
+}
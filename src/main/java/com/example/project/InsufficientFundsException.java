@@ -0,0 +1,13 @@
+package com.example.project;
+
+import java.sql.SQLException;
+
+// Thrown by a transfer whose source account exists but does not hold the amount, an expected business outcome
+// callers may tell apart from failures of the service
+public class InsufficientFundsException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    public InsufficientFundsException() {
+        super("Transfer cannot be completed: accounts validation failed or insufficient funds.");
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.project;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Credits one day of interest to every account with a positive balance, at annualRateBasisPoints a year
+// (250 is 2.50%) spread over daysPerYear days, rounded half-even to the cent
+public class InterestAccrualJob implements BatchJob<Map<String, Long>> {
+    private final long annualRateBasisPoints;
+    private final int daysPerYear;
+
+    public InterestAccrualJob(long annualRateBasisPoints) {
+        this(annualRateBasisPoints, 365);
+    }
+
+    public InterestAccrualJob(long annualRateBasisPoints, int daysPerYear) {
+        if (annualRateBasisPoints < 0 || daysPerYear <= 0) {
+            throw new IllegalArgumentException("The interest rate cannot be negative and a year must have days");
+        }
+        this.annualRateBasisPoints = annualRateBasisPoints;
+        this.daysPerYear = daysPerYear;
+    }
+
+    @Override
+    public String getName() {
+        return "interest-accrual";
+    }
+
+    // Interest of each account of the chunk, computed on the balance it had when read
+    @Override
+    public Map<String, Long> prepare(PooledConnection conn, List<String> accountIds) throws SQLException {
+        String sql = "SELECT accountId, balance FROM accounts WHERE accountId >= ? AND accountId <= ? AND balance > 0";
+        Set<String> chunk = new HashSet<>(accountIds);
+        Map<String, Long> interest = new LinkedHashMap<>();
+        PreparedStatement pstmt = conn.prepare(sql);
+        pstmt.setString(1, accountIds.get(0));
+        pstmt.setString(2, accountIds.get(accountIds.size() - 1));
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                String accountId = rs.getString("accountId");
+                long amount = interest(rs.getLong("balance"));
+                // Accounts created since the chunk was listed belong to no checkpoint yet
+                if (amount > 0 && chunk.contains(accountId)) {
+                    interest.put(accountId, amount);
+                }
+            }
+        }
+        return interest;
+    }
+
+    @Override
+    public int apply(PooledConnection conn, Map<String, Long> interest) throws SQLException {
+        if (interest.isEmpty()) {
+            return 0;
+        }
+        PreparedStatement pstmt = conn.prepare("UPDATE accounts SET balance = balance + ? WHERE accountId = ?");
+        try {
+            for (Map.Entry<String, Long> entry : interest.entrySet()) {
+                pstmt.setLong(1, entry.getValue());
+                pstmt.setString(2, entry.getKey());
+                pstmt.addBatch();
+            }
+            int changed = 0;
+            for (int count : pstmt.executeBatch()) {
+                changed += count;
+            }
+            return changed;
+        } finally {
+            pstmt.clearBatch();
+        }
+    }
+
+    long interest(long balance) {
+        return BigDecimal.valueOf(balance)
+                .multiply(BigDecimal.valueOf(annualRateBasisPoints))
+                .divide(BigDecimal.valueOf(10000L * daysPerYear), 0, RoundingMode.HALF_EVEN)
+                .longValueExact();
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.project;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Just enough JSON for the HTTP API: request bodies are flat objects whose values are strings, numbers, booleans
+// or null, read back as their text so amounts keep their exact decimal form for Money.parse
+final class Json {
+
+    private Json() {
+    }
+
+    static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> values = parser.object();
+        parser.skipWhitespace();
+        if (!parser.atEnd()) {
+            throw parser.error("Unexpected content after the object");
+        }
+        return values;
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    static String account(Account account) {
+        return "{\"accountId\":" + quote(account.getAccountId())
+                + ",\"balance\":" + Money.format(account.getBalance())
+                + ",\"ownerId\":" + quote(account.getOwnerId()) + "}";
+    }
+
+    static String check(Check check) {
+        return "{\"checkId\":" + quote(check.getCheckId())
+                + ",\"amount\":" + Money.format(check.getAmount())
+                + ",\"accountId\":" + quote(check.getAccountId())
+                + ",\"isValidated\":" + Boolean.TRUE.equals(check.getIsValidated()) + "}";
+    }
+
+    // Never includes the password
+    static String user(User user) {
+        return "{\"id\":" + quote(user.getId()) + ",\"role\":" + quote(user.getRole()) + "}";
+    }
+
+    static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        private Parser(String text) {
+            this.text = text;
+        }
+
+        private Map<String, String> object() {
+            Map<String, String> values = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return values;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                values.put(key, value());
+                skipWhitespace();
+                char next = next();
+                if (next == '}') {
+                    return values;
+                }
+                if (next != ',') {
+                    throw error("Expected ',' or '}'");
+                }
+            }
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (text.startsWith("null", position)) {
+                position += 4;
+                return null;
+            }
+            int start = position;
+            while (!atEnd() && "-+.eE0123456789truefals".indexOf(peek()) >= 0) {
+                position++;
+            }
+            if (start == position) {
+                throw error("Only flat objects of strings, numbers and booleans are accepted");
+            }
+            return text.substring(start, position);
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return out.toString();
+                }
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'b':
+                        out.append('\b');
+                        break;
+                    case 'f':
+                        out.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("Truncated unicode escape");
+                        }
+                        out.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default:
+                        out.append(escaped);
+                }
+            }
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error("Expected '" + expected + "'");
+            }
+        }
+
+        private char peek() {
+            if (atEnd()) {
+                throw error("Unexpected end of input");
+            }
+            return text.charAt(position);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        private void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private boolean atEnd() {
+            return position >= text.length();
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " of the request body");
+        }
+    }
+}
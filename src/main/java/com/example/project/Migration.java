@@ -0,0 +1,12 @@
+package com.example.project;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class Migration {
+    private final int version;
+    private final String description;
+    private final SqlWork<Void> work;
+}
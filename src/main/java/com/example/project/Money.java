@@ -0,0 +1,26 @@
+package com.example.project;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Amounts are carried as a primitive long of minor units (cents), these helpers convert at the edges only
+public final class Money {
+    public static final int SCALE = 2;
+    public static final long UNIT = 100;
+
+    private Money() {
+    }
+
+    public static long ofUnits(long units) {
+        return Math.multiplyExact(units, UNIT);
+    }
+
+    // Parses a decimal such as "12.34" into cents, rejecting anything finer than a cent
+    public static long parse(String amount) {
+        return new BigDecimal(amount.trim()).setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public static String format(long cents) {
+        return BigDecimal.valueOf(cents, SCALE).toPlainString();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.project;
+
+// JMX view of one operation's counters and latency histogram
+public class OperationMetrics implements OperationMetricsMBean {
+    private final BankMetrics metrics;
+    private final BankOperation operation;
+
+    OperationMetrics(BankMetrics metrics, BankOperation operation) {
+        this.metrics = metrics;
+        this.operation = operation;
+    }
+
+    @Override
+    public long getCount() {
+        return metrics.getCount(operation);
+    }
+
+    @Override
+    public long getErrors() {
+        return metrics.getErrors(operation);
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return metrics.getLatency(operation).getMean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return metrics.getLatency(operation).getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return metrics.getLatency(operation).getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return metrics.getLatency(operation).getPercentile(99.9) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return metrics.getLatency(operation).getMax() / 1e3;
+    }
+}
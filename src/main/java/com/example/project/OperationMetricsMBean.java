@@ -0,0 +1,19 @@
+package com.example.project;
+
+// Latencies are reported in microseconds
+public interface OperationMetricsMBean {
+
+    long getCount();
+
+    long getErrors();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
@@ -0,0 +1,96 @@
+package com.example.project;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Salted PBKDF2-HMAC-SHA256 password hashes stored as pbkdf2$<iterations>$<salt>$<hash>, both parts in base64.
+// Hashing is deliberately slow, which is why BankService verifies a password once per session and not per call.
+// Rows written before hashing hold the plaintext; they still verify and are rehashed on their next login.
+class PasswordHasher {
+    // Hashes asking for more work are refused, so a stored value cannot make every login burn the CPU
+    static final int MAX_ITERATIONS = 1_000_000;
+    private static final String PREFIX = "pbkdf2$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    PasswordHasher(int iterations) {
+        this.iterations = Math.max(1, Math.min(MAX_ITERATIONS, iterations));
+    }
+
+    String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(derive(password, salt, iterations));
+    }
+
+    boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHash(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        if (!isUsableHash(stored)) {
+            return false;
+        }
+        String[] parts = stored.split("\\$");
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] expected = decoder.decode(parts[3]);
+        return MessageDigest.isEqual(expected, derive(password, decoder.decode(parts[2]), Integer.parseInt(parts[1])));
+    }
+
+    // Plaintext rows and hashes made with fewer iterations than configured are upgraded after a successful login
+    boolean needsRehash(String stored) {
+        return !isHash(stored) || Integer.parseInt(stored.split("\\$")[1]) < iterations;
+    }
+
+    // Values in the stored format, hashed or not by this class
+    static boolean isHash(String value) {
+        if (value == null || !value.startsWith(PREFIX)) {
+            return false;
+        }
+        String[] parts = value.split("\\$");
+        return parts.length == 4 && parts[1].matches("[0-9]{1,9}") && !parts[2].isEmpty() && !parts[3].isEmpty();
+    }
+
+    // Hashes that can be verified: at most MAX_ITERATIONS and valid base64, as required of imported users
+    static boolean isUsableHash(String value) {
+        if (!isHash(value)) {
+            return false;
+        }
+        String[] parts = value.split("\\$");
+        if (Integer.parseInt(parts[1]) > MAX_ITERATIONS) {
+            return false;
+        }
+        try {
+            Base64.getDecoder().decode(parts[2]);
+            Base64.getDecoder().decode(parts[3]);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
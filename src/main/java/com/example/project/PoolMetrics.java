@@ -0,0 +1,145 @@
+package com.example.project;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PoolMetrics {
+    private final LongAdder readerCheckouts = new LongAdder();
+    private final LongAdder writerCheckouts = new LongAdder();
+    private final LongAdder readerWaitNanos = new LongAdder();
+    private final LongAdder writerWaitNanos = new LongAdder();
+    private final AtomicLong maxReaderWaitNanos = new AtomicLong();
+    private final AtomicLong maxWriterWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final AtomicInteger readersInUse = new AtomicInteger();
+    private final AtomicInteger writerInUse = new AtomicInteger();
+    private final AtomicInteger readersOpen = new AtomicInteger();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+    private final LongAdder walCheckpoints = new LongAdder();
+    private final LongAdder walFramesCheckpointed = new LongAdder();
+    private final LongAdder walTruncations = new LongAdder();
+
+    void recordReaderCheckout(long waitNanos) {
+        readerCheckouts.increment();
+        readerWaitNanos.add(waitNanos);
+        maxReaderWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        readersInUse.incrementAndGet();
+    }
+
+    void recordWriterCheckout(long waitNanos) {
+        writerCheckouts.increment();
+        writerWaitNanos.add(waitNanos);
+        maxWriterWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        writerInUse.incrementAndGet();
+    }
+
+    void recordReaderReturn() {
+        readersInUse.decrementAndGet();
+    }
+
+    void recordWriterReturn() {
+        writerInUse.decrementAndGet();
+    }
+
+    void recordTimeout() {
+        timeouts.increment();
+    }
+
+    void recordReaderOpened() {
+        readersOpen.incrementAndGet();
+    }
+
+    void recordReaderClosed() {
+        readersOpen.decrementAndGet();
+    }
+
+    void recordStatementHit() {
+        statementHits.increment();
+    }
+
+    void recordStatementMiss() {
+        statementMisses.increment();
+    }
+
+    void recordStatementEviction() {
+        statementEvictions.increment();
+    }
+
+    void recordWalCheckpoint(int frames) {
+        walCheckpoints.increment();
+        walFramesCheckpointed.add(frames);
+    }
+
+    void recordWalTruncation() {
+        walTruncations.increment();
+    }
+
+    public long getReaderCheckouts() {
+        return readerCheckouts.sum();
+    }
+
+    public long getWriterCheckouts() {
+        return writerCheckouts.sum();
+    }
+
+    public long getAverageReaderWaitNanos() {
+        long count = readerCheckouts.sum();
+        return count == 0 ? 0 : readerWaitNanos.sum() / count;
+    }
+
+    public long getAverageWriterWaitNanos() {
+        long count = writerCheckouts.sum();
+        return count == 0 ? 0 : writerWaitNanos.sum() / count;
+    }
+
+    public long getMaxReaderWaitNanos() {
+        return maxReaderWaitNanos.get();
+    }
+
+    public long getMaxWriterWaitNanos() {
+        return maxWriterWaitNanos.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public int getReadersInUse() {
+        return readersInUse.get();
+    }
+
+    public int getReadersOpen() {
+        return readersOpen.get();
+    }
+
+    public boolean isWriterInUse() {
+        return writerInUse.get() > 0;
+    }
+
+    public long getStatementCacheHits() {
+        return statementHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementMisses.sum();
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementEvictions.sum();
+    }
+
+    public long getWalCheckpoints() {
+        return walCheckpoints.sum();
+    }
+
+    public long getWalFramesCheckpointed() {
+        return walFramesCheckpointed.sum();
+    }
+
+    public long getWalTruncations() {
+        return walTruncations.sum();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.project;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// A connection borrowed from the ConnectionPool, closing it hands it back to the pool
+public class PooledConnection implements AutoCloseable {
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final boolean writer;
+    private final StatementCache statementCache;
+    private boolean inTransaction;
+
+    PooledConnection(ConnectionPool pool, Connection connection, boolean writer, StatementCache statementCache) {
+        this.pool = pool;
+        this.connection = connection;
+        this.writer = writer;
+        this.statementCache = statementCache;
+    }
+
+    // Statements returned here are owned by the cache, callers must not close them
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return statementCache.prepare(sql);
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public boolean isWriter() {
+        return writer;
+    }
+
+    public boolean isInTransaction() {
+        return inTransaction;
+    }
+
+    // Runs the work in an immediate transaction, or as part of the enclosing one when already inside a transaction
+    public <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        if (inTransaction) {
+            return work.run(this);
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("BEGIN IMMEDIATE");
+            inTransaction = true;
+            try {
+                T result = work.run(this);
+                stmt.execute("COMMIT");
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    stmt.execute("ROLLBACK");
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            } finally {
+                inTransaction = false;
+            }
+        }
+    }
+
+    void closeConnection() throws SQLException {
+        statementCache.clear();
+        connection.close();
+    }
+
+    @Override
+    public void close() {
+        pool.release(this);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.project;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Lazily maps rows of an open cursor into a Stream. The statement, the result set and the borrowed
+// connection stay open until the stream is closed, so callers must use try-with-resources.
+final class ResultSetStream {
+
+    private ResultSetStream() {
+    }
+
+    static <T> Stream<T> of(PooledConnection conn, PreparedStatement pstmt, RowMapper<T> mapper) throws SQLException {
+        ResultSet rs;
+        try {
+            rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            closeAll(null, pstmt, conn);
+            throw e;
+        }
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(rs));
+                    return true;
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> closeAll(rs, pstmt, conn));
+    }
+
+    private static void closeAll(ResultSet rs, PreparedStatement pstmt, PooledConnection conn) {
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+            pstmt.close();
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        } finally {
+            conn.close();
+        }
+    }
+}
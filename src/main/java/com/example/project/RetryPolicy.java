@@ -0,0 +1,56 @@
+package com.example.project;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Exponential backoff with jitter for transactions that lose the race for the database lock
+public class RetryPolicy {
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final LongAdder busyErrors = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+    }
+
+    public static boolean isBusy(SQLException e) {
+        // The driver reports extended result codes, the primary code lives in the low byte
+        int code = e.getErrorCode() & 0xff;
+        return code == SQLITE_BUSY || code == SQLITE_LOCKED;
+    }
+
+    public boolean shouldRetry(SQLException e, int attempt) {
+        if (!isBusy(e)) {
+            return false;
+        }
+        busyErrors.increment();
+        return attempt < maxAttempts;
+    }
+
+    public void backoff(int attempt) throws SQLException {
+        retries.increment();
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting to retry a busy transaction.", e);
+        }
+    }
+
+    public long getBusyErrors() {
+        return busyErrors.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+}
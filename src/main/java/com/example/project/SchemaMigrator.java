@@ -0,0 +1,216 @@
+package com.example.project;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Applies ordered schema migrations exactly once, the applied version is kept in PRAGMA user_version
+public class SchemaMigrator {
+    private final List<Migration> migrations = new ArrayList<>();
+
+    public SchemaMigrator() {
+        add(1, "Create users, accounts and checks tables", SchemaMigrator::createTables);
+        add(2, "Store balances and check amounts as integer cents", SchemaMigrator::migrateMoneyColumns);
+        add(3, "Index accounts by owner", conn -> execute(conn,
+                "CREATE INDEX IF NOT EXISTS idx_accounts_owner ON accounts (ownerId)"));
+        add(4, "Index pending checks by account", conn -> execute(conn,
+                "CREATE INDEX IF NOT EXISTS idx_checks_pending ON checks (accountId) WHERE isValidated = false"));
+        // Keyset paging orders by id within an owner or account, so the id joins the index key
+        add(5, "Extend lookup indexes for keyset paging", conn -> execute(conn,
+                "CREATE INDEX IF NOT EXISTS idx_accounts_owner_account ON accounts (ownerId, accountId)",
+                "DROP INDEX IF EXISTS idx_accounts_owner",
+                "CREATE INDEX IF NOT EXISTS idx_checks_pending_check ON checks (accountId, checkId) "
+                        + "WHERE isValidated = false",
+                "DROP INDEX IF EXISTS idx_checks_pending"));
+        // Cross-shard transfers: the coordinator's decision log lives in the catalog, the funds a transfer
+        // holds on an account live in that account's shard
+        add(6, "Add two-phase transfer log and holds", conn -> execute(conn,
+                "CREATE TABLE IF NOT EXISTS transfer_log (transferId TEXT PRIMARY KEY, fromAccountId TEXT, "
+                        + "toAccountId TEXT, amount INTEGER, state TEXT)",
+                "CREATE TABLE IF NOT EXISTS transfer_holds (transferId TEXT PRIMARY KEY, accountId TEXT, "
+                        + "amount INTEGER)"));
+        add(7, "Add balance summaries maintained by triggers", SchemaMigrator::createSummaries);
+        add(8, "Add bulk load progress tables", conn -> execute(conn,
+                "CREATE TABLE IF NOT EXISTS bulk_load_progress (jobId TEXT PRIMARY KEY, entity TEXT NOT NULL, "
+                        + "rowsCommitted INTEGER NOT NULL, state TEXT NOT NULL)",
+                "CREATE TABLE IF NOT EXISTS bulk_load_deferred (jobId TEXT NOT NULL, name TEXT NOT NULL, "
+                        + "sql TEXT NOT NULL, PRIMARY KEY (jobId, name))"));
+        add(9, "Add idempotency keys", conn -> execute(conn,
+                "CREATE TABLE IF NOT EXISTS idempotency_keys (idempotencyKey TEXT PRIMARY KEY, request TEXT NOT NULL, "
+                        + "createdAt INTEGER NOT NULL)",
+                "CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created ON idempotency_keys (createdAt)"));
+        add(10, "Add batch job checkpoints", conn -> execute(conn,
+                "CREATE TABLE IF NOT EXISTS batch_progress (runId TEXT NOT NULL, job TEXT NOT NULL, "
+                        + "rangeIndex INTEGER NOT NULL, lowerKey TEXT, upperKey TEXT, lastKey TEXT, "
+                        + "rowsScanned INTEGER NOT NULL, rowsChanged INTEGER NOT NULL, state TEXT NOT NULL, "
+                        + "PRIMARY KEY (runId, job, rangeIndex))"));
+    }
+
+    public void add(int version, String description, SqlWork<Void> work) {
+        if (!migrations.isEmpty() && migrations.get(migrations.size() - 1).getVersion() >= version) {
+            throw new IllegalArgumentException("Migrations must be added in increasing version order: " + version);
+        }
+        migrations.add(new Migration(version, description, work));
+    }
+
+    public List<Migration> getMigrations() {
+        return Collections.unmodifiableList(migrations);
+    }
+
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    // Returns the number of migrations applied, each one commits together with its version bump
+    public int migrate(PooledConnection conn) throws SQLException {
+        int current = currentVersion(conn);
+        if (current >= getLatestVersion()) {
+            return 0;
+        }
+        int applied = 0;
+        for (Migration migration : migrations) {
+            if (migration.getVersion() <= current) {
+                continue;
+            }
+            conn.inTransaction(c -> {
+                migration.getWork().run(c);
+                execute(c, "PRAGMA user_version = " + migration.getVersion());
+                return null;
+            });
+            applied++;
+        }
+        return applied;
+    }
+
+    public static int currentVersion(PooledConnection conn) throws SQLException {
+        try (Statement stmt = conn.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static Void execute(PooledConnection conn, String... sql) throws SQLException {
+        try (Statement stmt = conn.getConnection().createStatement()) {
+            for (String statement : sql) {
+                stmt.execute(statement);
+            }
+        }
+        return null;
+    }
+
+    private static Void createTables(PooledConnection conn) throws SQLException {
+        // SQL statement for creating a new table for users
+        String sqlUserTable = "CREATE TABLE IF NOT EXISTS users (\n"
+                + " id text PRIMARY KEY,\n"
+                + " password text NOT NULL,\n"
+                + " role text NOT NULL\n"
+                + ");";
+        return execute(conn, sqlUserTable, accountTableSql("accounts"), checkTableSql("checks"));
+    }
+
+    // SQL statement for creating a new table for accounts, balances are stored in cents
+    static String accountTableSql(String tableName) {
+        return "CREATE TABLE IF NOT EXISTS " + tableName + " (\n"
+                + " accountId text PRIMARY KEY,\n"
+                + " balance integer NOT NULL,\n"
+                + " ownerId text NOT NULL,\n"
+                + " FOREIGN KEY (ownerId) REFERENCES users (id)\n"
+                + ");";
+    }
+
+    // SQL statement for creating a new table for checks, amounts are stored in cents
+    static String checkTableSql(String tableName) {
+        return "CREATE TABLE IF NOT EXISTS " + tableName + " (\n"
+                + " checkId text PRIMARY KEY,\n"
+                + " amount integer NOT NULL,\n"
+                + " accountId text NOT NULL,\n"
+                + " isValidated boolean NOT NULL,\n"
+                + " FOREIGN KEY (accountId) REFERENCES accounts (accountId)\n"
+                + ");";
+    }
+
+    // Per-owner balance totals and per-account pending check totals, kept current by triggers on every write to
+    // accounts and checks so no code path can forget them
+    private static Void createSummaries(PooledConnection conn) throws SQLException {
+        execute(conn,
+                "CREATE TABLE IF NOT EXISTS user_balances (ownerId TEXT PRIMARY KEY, total INTEGER NOT NULL)",
+                "CREATE TABLE IF NOT EXISTS account_pending_checks (accountId TEXT PRIMARY KEY, total INTEGER NOT NULL)",
+                "CREATE TRIGGER IF NOT EXISTS trg_accounts_insert AFTER INSERT ON accounts BEGIN "
+                        + addToUserBalance("NEW.ownerId", "NEW.balance") + " END",
+                "CREATE TRIGGER IF NOT EXISTS trg_accounts_delete AFTER DELETE ON accounts BEGIN "
+                        + addToUserBalance("OLD.ownerId", "-OLD.balance") + " END",
+                "CREATE TRIGGER IF NOT EXISTS trg_accounts_update AFTER UPDATE OF balance, ownerId ON accounts BEGIN "
+                        + addToUserBalance("OLD.ownerId", "-OLD.balance") + " "
+                        + addToUserBalance("NEW.ownerId", "NEW.balance") + " END",
+                "CREATE TRIGGER IF NOT EXISTS trg_checks_insert AFTER INSERT ON checks "
+                        + "WHEN NEW.isValidated = false BEGIN "
+                        + addToPendingChecks("NEW.accountId", "NEW.amount") + " END",
+                "CREATE TRIGGER IF NOT EXISTS trg_checks_delete AFTER DELETE ON checks "
+                        + "WHEN OLD.isValidated = false BEGIN "
+                        + addToPendingChecks("OLD.accountId", "-OLD.amount") + " END",
+                "CREATE TRIGGER IF NOT EXISTS trg_checks_update_old AFTER UPDATE OF amount, accountId, isValidated "
+                        + "ON checks WHEN OLD.isValidated = false BEGIN "
+                        + addToPendingChecks("OLD.accountId", "-OLD.amount") + " END",
+                "CREATE TRIGGER IF NOT EXISTS trg_checks_update_new AFTER UPDATE OF amount, accountId, isValidated "
+                        + "ON checks WHEN NEW.isValidated = false BEGIN "
+                        + addToPendingChecks("NEW.accountId", "NEW.amount") + " END");
+        return rebuildSummaries(conn);
+    }
+
+    private static String addToUserBalance(String ownerId, String delta) {
+        return "INSERT INTO user_balances (ownerId, total) VALUES (" + ownerId + ", " + delta + ") "
+                + "ON CONFLICT (ownerId) DO UPDATE SET total = total + excluded.total;";
+    }
+
+    private static String addToPendingChecks(String accountId, String delta) {
+        return "INSERT INTO account_pending_checks (accountId, total) VALUES (" + accountId + ", " + delta + ") "
+                + "ON CONFLICT (accountId) DO UPDATE SET total = total + excluded.total;";
+    }
+
+    // Recomputes both summary tables from scratch
+    static Void rebuildSummaries(PooledConnection conn) throws SQLException {
+        return execute(conn,
+                "DELETE FROM user_balances",
+                "INSERT INTO user_balances (ownerId, total) SELECT ownerId, SUM(balance) FROM accounts GROUP BY ownerId",
+                "DELETE FROM account_pending_checks",
+                "INSERT INTO account_pending_checks (accountId, total) "
+                        + "SELECT accountId, SUM(amount) FROM checks WHERE isValidated = false GROUP BY accountId");
+    }
+
+    // Databases created before money moved to cents store balances and amounts as real,
+    // rebuild those tables with integer columns holding the rounded cent values
+    private static Void migrateMoneyColumns(PooledConnection conn) throws SQLException {
+        if (isRealColumn(conn, "accounts", "balance")) {
+            execute(conn,
+                    accountTableSql("accounts_cents"),
+                    "INSERT INTO accounts_cents (accountId, balance, ownerId) "
+                            + "SELECT accountId, CAST(ROUND(balance * 100) AS INTEGER), ownerId FROM accounts",
+                    "DROP TABLE accounts",
+                    "ALTER TABLE accounts_cents RENAME TO accounts");
+        }
+        if (isRealColumn(conn, "checks", "amount")) {
+            execute(conn,
+                    checkTableSql("checks_cents"),
+                    "INSERT INTO checks_cents (checkId, amount, accountId, isValidated) "
+                            + "SELECT checkId, CAST(ROUND(amount * 100) AS INTEGER), accountId, isValidated FROM checks",
+                    "DROP TABLE checks",
+                    "ALTER TABLE checks_cents RENAME TO checks");
+        }
+        return null;
+    }
+
+    private static boolean isRealColumn(PooledConnection conn, String table, String column) throws SQLException {
+        try (Statement stmt = conn.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equals(rs.getString("name"))) {
+                    return "real".equalsIgnoreCase(rs.getString("type"));
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.project;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Sessions opened by BankService.openSession, keyed by an unguessable token. Checking a token is a cache lookup,
+// the password hash is only verified when the session is opened. Sessions expire after their TTL, the least
+// recently used ones are dropped when the cache is full, and changing or removing a user ends all of its
+// sessions at once.
+class SessionManager {
+    private static final int TOKEN_BYTES = 32;
+
+    private final BoundedCache<String, User> sessions;
+    private final Map<String, Set<String>> tokensByUser = new ConcurrentHashMap<>();
+    // Bumped whenever a user's sessions are invalidated, guarded by this
+    private final Map<String, Long> generations = new HashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    SessionManager(int maxSessions, long ttlMillis) {
+        this.sessions = new BoundedCache<>(maxSessions, ttlMillis, this::forget);
+    }
+
+    // Taken before the user's row is read, so a change committed while the password is being verified
+    // prevents the session from being issued
+    synchronized long generation(String userId) {
+        return generations.getOrDefault(userId, 0L);
+    }
+
+    // Empty when the user changed since generation was taken
+    synchronized Optional<String> issue(User user, long generation) {
+        if (generations.getOrDefault(user.getId(), 0L) != generation) {
+            return Optional.empty();
+        }
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        // Under compute, so forget cannot drop the set between its lookup and the add
+        tokensByUser.compute(user.getId(), (id, tokens) -> {
+            Set<String> userTokens = tokens == null ? ConcurrentHashMap.newKeySet() : tokens;
+            userTokens.add(token);
+            return userTokens;
+        });
+        // Sessions never hand out the password hash
+        sessions.put(token, new User(user.getId(), null, user.getRole()));
+        return Optional.of(token);
+    }
+
+    Optional<User> find(String token) {
+        User user = token == null ? null : sessions.get(token);
+        return user == null ? Optional.empty() : Optional.of(new User(user.getId(), null, user.getRole()));
+    }
+
+    void close(String token) {
+        sessions.remove(token);
+    }
+
+    synchronized void invalidateUser(String userId) {
+        generations.merge(userId, 1L, Long::sum);
+        Set<String> tokens = tokensByUser.remove(userId);
+        if (tokens != null) {
+            for (String token : tokens) {
+                sessions.remove(token);
+            }
+        }
+    }
+
+    CacheStats getStats() {
+        return sessions.getStats();
+    }
+
+    // Users with at least one live session
+    int getUsersWithSessions() {
+        return tokensByUser.size();
+    }
+
+    // Removal listener of the session cache, called for closed, expired and evicted sessions alike.
+    // A user's entry goes with their last session
+    private void forget(String token, User user) {
+        tokensByUser.computeIfPresent(user.getId(), (id, tokens) -> {
+            tokens.remove(token);
+            return tokens.isEmpty() ? null : tokens;
+        });
+    }
+}
@@ -0,0 +1,477 @@
+package com.example.project;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Spreads accounts and their checks over several SQLite files by hash of accountId, each shard with its own
+// writer, so balance changes on different shards commit in parallel. Users and the transfer log live in a
+// separate catalog database.
+//
+// A transfer between shards runs a two-phase protocol coordinated through the catalog's transfer_log:
+//   1. log the transfer as STARTED
+//   2. prepare the source: debit the funds and record the hold in transfer_holds, in one transaction
+//   3. prepare the target: check the account exists and record the pending credit
+//   4. log the transfer as COMMITTED, the point after which it can no longer fail
+//   5. apply the credit and drop both holds, then drop the log entry
+// Any failure before step 4 refunds the source. When step 4 itself fails the log decides: the transfer is settled if
+// the state made it to COMMITTED, refunded otherwise. A failure in step 5 does not fail the transfer. Whatever could
+// not be settled or refunded right away is retried in the background until it succeeds. A crash leaves the log entry behind, and recover() (run on startup) rolls
+// COMMITTED transfers forward and STARTED ones back. Debited funds are never visible on both sides at once.
+//
+// Shards run without the ledger, cache and group commit since this class writes to their tables directly.
+public class ShardedBankService {
+    private static final String STARTED = "STARTED";
+    private static final String COMMITTED = "COMMITTED";
+
+    private final BankService catalog;
+    private final List<BankService> shards = new ArrayList<>();
+    private final ExecutorService fanOut;
+    // Retries settling or refunding transfers whose last step failed
+    private final ScheduledExecutorService settler;
+    private final int recoveredTransfers;
+
+    public ShardedBankService(BankConfig template, String catalogUrl, List<String> shardUrls) throws SQLException {
+        if (shardUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required.");
+        }
+        this.catalog = new BankService(shardConfig(template, catalogUrl));
+        for (String url : shardUrls) {
+            shards.add(new BankService(shardConfig(template, url)));
+        }
+        this.fanOut = Executors.newFixedThreadPool(shardUrls.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.settler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-settler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.recoveredTransfers = recover();
+    }
+
+    private static BankConfig shardConfig(BankConfig template, String url) {
+        BankConfig config = new BankConfig();
+        config.setUrl(url);
+        config.setReaderPoolSize(template.getReaderPoolSize());
+        config.setCheckoutTimeoutMillis(template.getCheckoutTimeoutMillis());
+        config.setBusyTimeoutMillis(template.getBusyTimeoutMillis());
+        config.setDurabilityProfile(template.getDurabilityProfile());
+        config.setWalCheckpointIntervalMillis(template.getWalCheckpointIntervalMillis());
+        config.setWalSizeLimitBytes(template.getWalSizeLimitBytes());
+        config.setStatementCacheSize(template.getStatementCacheSize());
+        config.setMaxRetryAttempts(template.getMaxRetryAttempts());
+        config.setInitialRetryBackoffMillis(template.getInitialRetryBackoffMillis());
+        config.setMaxRetryBackoffMillis(template.getMaxRetryBackoffMillis());
+        config.setBatchChunkSize(template.getBatchChunkSize());
+        config.setStreamFetchSize(template.getStreamFetchSize());
+        return config;
+    }
+
+    // Interrupted transfers finished when this instance started
+    public int getRecoveredTransfers() {
+        return recoveredTransfers;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    // String.hashCode is specified by the language, so the placement of an account never changes between runs
+    public int shardOf(String accountId) {
+        return Math.floorMod(accountId.hashCode(), shards.size());
+    }
+
+    private BankService shardFor(String accountId) {
+        return shards.get(shardOf(accountId));
+    }
+
+    public void disconnect() {
+        fanOut.shutdown();
+        // Transfers still unsettled are finished by recover() on the next start
+        settler.shutdownNow();
+        for (BankService shard : shards) {
+            shard.disconnect();
+        }
+        catalog.disconnect();
+    }
+
+
+    // User management methods
+    public void addUser(User user) throws SQLException {
+        catalog.addUser(user);
+    }
+
+    public void removeUser(String userId) throws SQLException {
+        catalog.removeUser(userId);
+    }
+
+    public Optional<User> findUser(String userId) throws SQLException {
+        return catalog.findUser(userId);
+    }
+
+    public boolean authenticateUser(String userId, String password) throws SQLException {
+        return catalog.authenticateUser(userId, password);
+    }
+
+    public void updateUser(User user) throws SQLException {
+        catalog.updateUser(user);
+    }
+
+    public Optional<String> openSession(String userId, String password) throws SQLException {
+        return catalog.openSession(userId, password);
+    }
+
+    public Optional<User> getSessionUser(String token) {
+        return catalog.getSessionUser(token);
+    }
+
+    public void closeSession(String token) {
+        catalog.closeSession(token);
+    }
+
+
+    //Account management methods
+    public void addAccount(Account account) throws SQLException {
+        shardFor(account.getAccountId()).addAccount(account);
+    }
+
+    public void removeAccount(String accountId) throws SQLException {
+        shardFor(accountId).removeAccount(accountId);
+    }
+
+    public Optional<Account> findAccount(String accountId) throws SQLException {
+        return shardFor(accountId).findAccount(accountId);
+    }
+
+    public void updateAccount(Account account) throws SQLException {
+        shardFor(account.getAccountId()).updateAccount(account);
+    }
+
+    public void depositAmount(String accountId, long amount) throws SQLException {
+        shardFor(accountId).depositAmount(accountId, amount);
+    }
+
+    public void withdrawAmount(String accountId, long amount) throws SQLException {
+        shardFor(accountId).withdrawAmount(accountId, amount);
+    }
+
+    public void transferAmount(String fromAccountId, String toAccountId, long amount) throws SQLException {
+        // The holds carry the sign of the transfer, a negative amount would be credited on both sides
+        if (amount <= 0) {
+            throw new SQLException("Transfer cannot be completed: the amount must be positive.");
+        }
+        BankService source = shardFor(fromAccountId);
+        BankService target = shardFor(toAccountId);
+        if (source == target) {
+            source.transferAmount(fromAccountId, toAccountId, amount);
+            return;
+        }
+        String transferId = UUID.randomUUID().toString();
+        log(transferId, fromAccountId, toAccountId, amount);
+        try {
+            holdDebit(source, transferId, fromAccountId, amount);
+        } catch (SQLException e) {
+            forget(transferId);
+            throw e;
+        }
+        try {
+            holdCredit(target, transferId, toAccountId, amount);
+        } catch (SQLException e) {
+            try {
+                rollBack(transferId, source, target);
+            } catch (SQLException rollBackFailure) {
+                System.out.println(rollBackFailure.getMessage());
+                resolveLater(transferId, source, target, 1);
+            }
+            throw e;
+        }
+        try {
+            markCommitted(transferId);
+        } catch (SQLException e) {
+            // The update may have committed before the failure was reported, so the log decides
+            boolean committed;
+            try {
+                committed = resolve(transferId, source, target);
+            } catch (SQLException resolveFailure) {
+                System.out.println(resolveFailure.getMessage());
+                resolveLater(transferId, source, target, 1);
+                throw e;
+            }
+            if (!committed) {
+                throw e;
+            }
+            return;
+        }
+        // Past the commit point the transfer has happened, a failure to settle it is not the caller's
+        try {
+            settle(transferId, source, target);
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            resolveLater(transferId, source, target, 1);
+        }
+    }
+
+    private void settle(String transferId, BankService source, BankService target) throws SQLException {
+        applyHold(target, transferId);
+        dropHold(source, transferId);
+        forget(transferId);
+    }
+
+    private void rollBack(String transferId, BankService source, BankService target) throws SQLException {
+        dropHold(target, transferId);
+        refundHold(source, transferId);
+        forget(transferId);
+    }
+
+    // Settles the transfer if the log has it COMMITTED and rolls it back otherwise, returns whether it was settled.
+    // A transfer already forgotten has no holds left, rolling it back does nothing
+    private boolean resolve(String transferId, BankService source, BankService target) throws SQLException {
+        if (COMMITTED.equals(state(transferId))) {
+            settle(transferId, source, target);
+            return true;
+        }
+        rollBack(transferId, source, target);
+        return false;
+    }
+
+    // Each step of settle and rollBack can be repeated, so retrying after a partial one is safe
+    private void resolveLater(String transferId, BankService source, BankService target, int attempt) {
+        long delayMillis = Math.min(30000, 100L << Math.min(attempt, 9));
+        try {
+            settler.schedule(() -> {
+                try {
+                    resolve(transferId, source, target);
+                } catch (SQLException e) {
+                    System.out.println(e.getMessage());
+                    resolveLater(transferId, source, target, attempt + 1);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Disconnected, recover() finishes it on the next start
+        }
+    }
+
+    public void depositCheck(String checkId, String accountId, long amount) throws SQLException {
+        shardFor(accountId).depositCheck(checkId, accountId, amount);
+    }
+
+    // Checks are placed by their account, so the check is looked up on every shard first
+    public void validateCheck(String checkId) throws SQLException {
+        for (BankService shard : shards) {
+            if (shard.hasPendingCheck(checkId)) {
+                shard.validateCheck(checkId);
+                return;
+            }
+        }
+        throw new SQLException("Check validation failed: Check does not exist or is already validated.");
+    }
+
+    public List<Account> getAccountsForUser(String userId) throws SQLException {
+        List<CompletableFuture<List<Account>>> parts = new ArrayList<>();
+        for (BankService shard : shards) {
+            parts.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return shard.getAccountsForUser(userId);
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, fanOut));
+        }
+        List<Account> accounts = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<Account>> part : parts) {
+                accounts.addAll(part.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        }
+        accounts.sort(Comparator.comparing(Account::getAccountId));
+        return accounts;
+    }
+
+    public List<Check> getUnvalidatedChecksForAccount(String accountId) throws SQLException {
+        return shardFor(accountId).getUnvalidatedChecksForAccount(accountId);
+    }
+
+    // Funds held by a cross-shard transfer in flight are counted on neither side until it settles
+    public long getTotalBalanceForUser(String userId) throws SQLException {
+        long total = 0;
+        for (BankService shard : shards) {
+            total += shard.getTotalBalanceForUser(userId);
+        }
+        return total;
+    }
+
+    public long getPendingCheckTotalForAccount(String accountId) throws SQLException {
+        return shardFor(accountId).getPendingCheckTotalForAccount(accountId);
+    }
+
+    // Finishes transfers interrupted by a crash: committed ones are applied, undecided ones are refunded.
+    // Only safe while no transfer is running, which is why it runs from the constructor
+    int recover() throws SQLException {
+        List<String[]> pending = catalog.inWriteTransaction(conn -> {
+            List<String[]> rows = new ArrayList<>();
+            PreparedStatement pstmt = conn.prepare("SELECT transferId, fromAccountId, toAccountId, state FROM transfer_log");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new String[]{rs.getString("transferId"), rs.getString("fromAccountId"),
+                            rs.getString("toAccountId"), rs.getString("state")});
+                }
+            }
+            return rows;
+        });
+        for (String[] transfer : pending) {
+            String transferId = transfer[0];
+            BankService source = shardFor(transfer[1]);
+            BankService target = shardFor(transfer[2]);
+            if (COMMITTED.equals(transfer[3])) {
+                settle(transferId, source, target);
+            } else {
+                rollBack(transferId, source, target);
+            }
+        }
+        return pending.size();
+    }
+
+    private void log(String transferId, String fromAccountId, String toAccountId, long amount) throws SQLException {
+        catalog.inWriteTransaction(conn -> {
+            PreparedStatement pstmt = conn.prepare("INSERT INTO transfer_log (transferId, fromAccountId, "
+                    + "toAccountId, amount, state) VALUES (?, ?, ?, ?, ?)");
+            pstmt.setString(1, transferId);
+            pstmt.setString(2, fromAccountId);
+            pstmt.setString(3, toAccountId);
+            pstmt.setLong(4, amount);
+            pstmt.setString(5, STARTED);
+            return pstmt.executeUpdate();
+        });
+    }
+
+    private void markCommitted(String transferId) throws SQLException {
+        catalog.inWriteTransaction(conn -> {
+            PreparedStatement pstmt = conn.prepare("UPDATE transfer_log SET state = ? WHERE transferId = ?");
+            pstmt.setString(1, COMMITTED);
+            pstmt.setString(2, transferId);
+            return pstmt.executeUpdate();
+        });
+    }
+
+    // Null once the transfer is forgotten
+    private String state(String transferId) throws SQLException {
+        return catalog.inWriteTransaction(conn -> {
+            PreparedStatement pstmt = conn.prepare("SELECT state FROM transfer_log WHERE transferId = ?");
+            pstmt.setString(1, transferId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString("state") : null;
+            }
+        });
+    }
+
+    private void forget(String transferId) throws SQLException {
+        catalog.inWriteTransaction(conn -> {
+            PreparedStatement pstmt = conn.prepare("DELETE FROM transfer_log WHERE transferId = ?");
+            pstmt.setString(1, transferId);
+            return pstmt.executeUpdate();
+        });
+    }
+
+    // Phase one on the source: the debit and its hold commit together, or not at all
+    private static void holdDebit(BankService shard, String transferId, String accountId, long amount)
+            throws SQLException {
+        shard.inWriteTransaction(conn -> {
+            PreparedStatement debit = conn.prepare(
+                    "UPDATE accounts SET balance = balance - ? WHERE accountId = ? AND balance >= ?");
+            debit.setLong(1, amount);
+            debit.setString(2, accountId);
+            debit.setLong(3, amount);
+            if (debit.executeUpdate() != 1) {
+                throw BankService.accountExists(conn, accountId) ? new InsufficientFundsException()
+                        : new SQLException("Transfer cannot be completed: accounts validation failed or insufficient funds.");
+            }
+            insertHold(conn, transferId, accountId, -amount);
+            return null;
+        });
+    }
+
+    // Phase one on the target: the credit is only recorded, it is applied once the transfer is committed
+    private static void holdCredit(BankService shard, String transferId, String accountId, long amount)
+            throws SQLException {
+        shard.inWriteTransaction(conn -> {
+            if (!BankService.accountExists(conn, accountId)) {
+                throw new SQLException("Transfer cannot be completed: accounts validation failed or insufficient funds.");
+            }
+            insertHold(conn, transferId, accountId, amount);
+            return null;
+        });
+    }
+
+    private static void insertHold(PooledConnection conn, String transferId, String accountId, long amount)
+            throws SQLException {
+        PreparedStatement hold = conn.prepare(
+                "INSERT INTO transfer_holds (transferId, accountId, amount) VALUES (?, ?, ?)");
+        hold.setString(1, transferId);
+        hold.setString(2, accountId);
+        hold.setLong(3, amount);
+        hold.executeUpdate();
+    }
+
+    // Adds the credit hold to the target's balance and drops it.
+    // Like the other two, does nothing once the hold is gone, so recovery may repeat it
+    private static void applyHold(BankService shard, String transferId) throws SQLException {
+        resolveHold(shard, transferId, 1);
+    }
+
+    // Takes the debit hold back out of the source's balance, which returns the funds, and drops it
+    private static void refundHold(BankService shard, String transferId) throws SQLException {
+        resolveHold(shard, transferId, -1);
+    }
+
+    // Drops a hold without touching the balance
+    private static void dropHold(BankService shard, String transferId) throws SQLException {
+        resolveHold(shard, transferId, 0);
+    }
+
+    private static void resolveHold(BankService shard, String transferId, int sign) throws SQLException {
+        shard.inWriteTransaction(conn -> {
+            PreparedStatement find = conn.prepare("SELECT accountId, amount FROM transfer_holds WHERE transferId = ?");
+            find.setString(1, transferId);
+            String accountId;
+            long amount;
+            try (ResultSet rs = find.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                accountId = rs.getString("accountId");
+                amount = rs.getLong("amount");
+            }
+            if (sign != 0) {
+                // Debit holds carry the negative amount taken from the source
+                PreparedStatement update = conn.prepare("UPDATE accounts SET balance = balance + ? WHERE accountId = ?");
+                update.setLong(1, sign * amount);
+                update.setString(2, accountId);
+                update.executeUpdate();
+            }
+            PreparedStatement delete = conn.prepare("DELETE FROM transfer_holds WHERE transferId = ?");
+            delete.setString(1, transferId);
+            delete.executeUpdate();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.project;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface SqlCall<T> {
+    T call() throws SQLException;
+}
@@ -0,0 +1,8 @@
+package com.example.project;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface SqlWork<T> {
+    T run(PooledConnection conn) throws SQLException;
+}
@@ -0,0 +1,9 @@
+package com.example.project;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface StatementBinder<T> {
+    void bind(PreparedStatement pstmt, T item) throws SQLException;
+}
@@ -0,0 +1,59 @@
+package com.example.project;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// LRU cache of prepared statements keyed by SQL text, bound to a single connection
+public class StatementCache {
+    private final Connection connection;
+    private final int maxSize;
+    private final PoolMetrics metrics;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    StatementCache(Connection connection, int maxSize, PoolMetrics metrics) {
+        this.connection = connection;
+        this.maxSize = Math.max(1, maxSize);
+        this.metrics = metrics;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement pstmt = statements.get(sql);
+        if (pstmt != null && !pstmt.isClosed()) {
+            metrics.recordStatementHit();
+            return pstmt;
+        }
+        metrics.recordStatementMiss();
+        pstmt = connection.prepareStatement(sql);
+        statements.put(sql, pstmt);
+        if (statements.size() > maxSize) {
+            Map.Entry<String, PreparedStatement> eldest = statements.entrySet().iterator().next();
+            statements.remove(eldest.getKey());
+            closeQuietly(eldest.getValue());
+            metrics.recordStatementEviction();
+        }
+        return pstmt;
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    public void clear() {
+        for (PreparedStatement pstmt : statements.values()) {
+            closeQuietly(pstmt);
+        }
+        statements.clear();
+    }
+
+    private void closeQuietly(PreparedStatement pstmt) {
+        try {
+            pstmt.close();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.project;
+
+import java.sql.SQLException;
+
+// Carries a SQLException out of a Stream pipeline, which cannot throw checked exceptions
+public class UncheckedSQLException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
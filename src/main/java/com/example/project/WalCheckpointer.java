@@ -0,0 +1,86 @@
+package com.example.project;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// SQLite's automatic checkpoint never completes while readers keep old snapshots open, so under sustained load
+// the WAL file keeps growing. This runs a passive checkpoint on its own connection at a fixed interval and
+// truncates the WAL once it is over walSizeLimitBytes, which waits up to busy_timeout for readers to move on.
+class WalCheckpointer implements AutoCloseable {
+    private final Connection connection;
+    private final long sizeLimitBytes;
+    private final PoolMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+
+    WalCheckpointer(BankConfig config, PoolMetrics metrics) throws SQLException {
+        this.connection = DriverManager.getConnection(config.getUrl());
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + config.getBusyTimeoutMillis());
+        }
+        this.sizeLimitBytes = config.getWalSizeLimitBytes();
+        this.metrics = metrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wal-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getWalCheckpointIntervalMillis();
+        scheduler.scheduleWithFixedDelay(this::checkpointQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // Returns the number of frames copied back into the database
+    synchronized int checkpoint() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            long pageSize;
+            try (ResultSet rs = stmt.executeQuery("PRAGMA page_size")) {
+                rs.next();
+                pageSize = rs.getLong(1);
+            }
+            int[] passive = run(stmt, "PASSIVE");
+            int copied = passive[2];
+            // Every frame is a page plus a 24 byte header
+            if ((long) passive[1] * (pageSize + 24) > sizeLimitBytes) {
+                int[] truncate = run(stmt, "TRUNCATE");
+                if (truncate[0] == 0) {
+                    metrics.recordWalTruncation();
+                }
+                copied = Math.max(copied, truncate[2]);
+            }
+            metrics.recordWalCheckpoint(copied);
+            return copied;
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        connection.close();
+    }
+
+    // busy flag, frames in the WAL, frames checkpointed
+    private static int[] run(Statement stmt, String mode) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(" + mode + ")")) {
+            rs.next();
+            return new int[]{rs.getInt(1), rs.getInt(2), rs.getInt(3)};
+        }
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
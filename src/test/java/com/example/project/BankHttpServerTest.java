@@ -0,0 +1,210 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankHttpServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+    private BankHttpServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+    // Sent as the bearer token when set
+    private String token;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("http.db"));
+        config.setHttpPort(0);
+        config.setHttpMaxConcurrency(2);
+        config.setPasswordHashIterations(1000);
+        bankService = new BankService(config);
+        server = new BankHttpServer(bankService, config);
+        server.start();
+        bankService.addUser(new User("root", "rootpass", "admin"));
+        token = bankService.openSession("root", "rootpass").get();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        bankService.disconnect();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path));
+        return token == null ? builder : builder.header("Authorization", "Bearer " + token);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body);
+        return client.send(request(path).method(method, publisher).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testAccountsAndTransfers() throws Exception {
+        assertEquals(201, send("POST", "/users", "{\"id\":\"alice\",\"password\":\"secret\"}").statusCode());
+        assertEquals(201, send("POST", "/accounts", "{\"accountId\":\"first\",\"balance\":100.50,\"ownerId\":\"alice\"}")
+                .statusCode());
+        assertEquals(201, send("POST", "/accounts", "{\"accountId\":\"second\",\"ownerId\":\"alice\"}").statusCode());
+
+        assertEquals(200, send("POST", "/accounts/first/deposits", "{\"amount\":\"9.50\"}").statusCode());
+        HttpResponse<String> transfer = send("POST", "/transfers",
+                "{\"fromAccountId\":\"first\",\"toAccountId\":\"second\",\"amount\":30,\"idempotencyKey\":\"t1\"}");
+        assertEquals(200, transfer.statusCode());
+        assertTrue(transfer.body().contains("\"applied\":true"));
+        transfer = send("POST", "/transfers",
+                "{\"fromAccountId\":\"first\",\"toAccountId\":\"second\",\"amount\":30,\"idempotencyKey\":\"t1\"}");
+        assertTrue(transfer.body().contains("\"applied\":false"));
+
+        assertEquals("{\"accountId\":\"first\",\"balance\":80.00,\"ownerId\":\"alice\"}",
+                send("GET", "/accounts/first", null).body());
+        assertEquals("[{\"accountId\":\"first\",\"balance\":80.00,\"ownerId\":\"alice\"},"
+                        + "{\"accountId\":\"second\",\"balance\":30.00,\"ownerId\":\"alice\"}]",
+                send("GET", "/users/alice/accounts", null).body());
+        assertEquals("[]", send("GET", "/users/nobody/accounts", null).body());
+        assertTrue(send("GET", "/users/alice/balance", null).body().contains("\"totalBalance\":110.00"));
+        assertEquals("{\"id\":\"alice\",\"role\":\"client\"}", send("GET", "/users/alice", null).body());
+    }
+
+    @Test
+    void testChecks() throws Exception {
+        bankService.addAccount(new Account("first", 0, "alice"));
+        assertEquals(201, send("POST", "/checks", "{\"checkId\":\"c1\",\"accountId\":\"first\",\"amount\":12.34}")
+                .statusCode());
+        assertEquals("[{\"checkId\":\"c1\",\"amount\":12.34,\"accountId\":\"first\",\"isValidated\":false}]",
+                send("GET", "/accounts/first/checks", null).body());
+
+        assertEquals(200, send("POST", "/checks/c1/validate", null).statusCode());
+        assertEquals("[]", send("GET", "/accounts/first/checks", null).body());
+        assertEquals(1234, bankService.findAccount("first").get().getBalance());
+    }
+
+    @Test
+    void testSessions() throws Exception {
+        bankService.addUser(new User("alice", "secret", "admin"));
+        assertEquals(401, send("POST", "/sessions", "{\"userId\":\"alice\",\"password\":\"wrong\"}").statusCode());
+        HttpResponse<String> opened = send("POST", "/sessions", "{\"userId\":\"alice\",\"password\":\"secret\"}");
+        assertEquals(201, opened.statusCode());
+        String token = opened.body().replaceAll(".*\"token\":\"([^\"]+)\".*", "$1");
+
+        assertEquals("{\"id\":\"alice\",\"role\":\"admin\"}", send("GET", "/sessions/" + token, null).body());
+        assertEquals(204, send("DELETE", "/sessions/" + token, null).statusCode());
+        assertEquals(404, send("GET", "/sessions/" + token, null).statusCode());
+    }
+
+    @Test
+    void testErrorsMapToStatusCodes() throws Exception {
+        bankService.addAccount(new Account("first", 1000, "alice"));
+        bankService.addAccount(new Account("second", 0, "alice"));
+
+        assertEquals(404, send("GET", "/accounts/missing", null).statusCode());
+        assertEquals(404, send("GET", "/nowhere", null).statusCode());
+        assertEquals(405, send("PUT", "/transfers", "{}").statusCode());
+        assertEquals(400, send("POST", "/accounts/first/deposits", "{\"amount\":\"1.001\"}").statusCode());
+        assertEquals(400, send("POST", "/accounts/first/deposits", "{\"amount\":-5}").statusCode());
+        assertEquals(400, send("POST", "/accounts/first/deposits", "not json").statusCode());
+        HttpResponse<String> overdraft = send("POST", "/transfers",
+                "{\"fromAccountId\":\"first\",\"toAccountId\":\"second\",\"amount\":20}");
+        assertEquals(409, overdraft.statusCode());
+        assertTrue(overdraft.body().startsWith("{\"error\":"));
+    }
+
+    @Test
+    void testConcurrentRequestsBeyondTheLimitQueue() throws Exception {
+        bankService.addAccount(new Account("first", 0, "alice"));
+        List<CompletableFuture<HttpResponse<String>>> calls = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            calls.add(client.sendAsync(request("/accounts/first/deposits")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"amount\":1}")).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> call : calls) {
+            assertEquals(200, call.get().statusCode());
+        }
+        assertEquals(4000, bankService.findAccount("first").get().getBalance());
+        assertEquals(0, server.getInFlight());
+    }
+
+    @Test
+    void testClosedServerRefusesConnections() throws Exception {
+        assertEquals(200, send("GET", "/health", null).statusCode());
+        server.close();
+        assertThrows(IOException.class, () -> send("GET", "/health", null));
+    }
+
+    @Test
+    void testChangesNeedASession() throws Exception {
+        bankService.addUser(new User("alice", "secret", "client"));
+        bankService.addUser(new User("bob", "secret", "client"));
+        bankService.addAccount(new Account("first", 0, "alice"));
+        token = null;
+        assertEquals(401, send("POST", "/accounts/first/deposits", "{\"amount\":1}").statusCode());
+        assertEquals(401, send("DELETE", "/users/bob", null).statusCode());
+        assertEquals(401, send("GET", "/accounts/first", null).statusCode());
+        assertEquals(401, send("GET", "/users/alice/accounts", null).statusCode());
+        assertEquals(200, send("GET", "/health", null).statusCode());
+        token = "forged";
+        assertEquals(401, send("PUT", "/users/bob", "{\"password\":\"mine\"}").statusCode());
+
+        token = bankService.openSession("alice", "secret").get();
+        assertEquals(200, send("POST", "/accounts/first/deposits", "{\"amount\":1}").statusCode());
+        assertEquals(403, send("PUT", "/users/bob", "{\"password\":\"mine\"}").statusCode());
+        assertEquals(403, send("POST", "/users", "{\"id\":\"carol\",\"password\":\"secret\"}").statusCode());
+        assertEquals(403, send("PUT", "/users/alice", "{\"role\":\"admin\"}").statusCode());
+        assertEquals(200, send("PUT", "/users/alice", "{\"password\":\"changed\"}").statusCode());
+        assertTrue(bankService.authenticateUser("alice", "changed"));
+        assertEquals("client", bankService.findUser("alice").get().getRole());
+        assertTrue(bankService.authenticateUser("bob", "secret"));
+    }
+
+    @Test
+    void testClientsOnlyReachTheirOwnAccounts() throws Exception {
+        bankService.addUser(new User("alice", "secret", "client"));
+        bankService.addUser(new User("bob", "secret", "client"));
+        bankService.addAccount(new Account("first", 1000, "alice"));
+        bankService.addAccount(new Account("second", 1000, "bob"));
+        bankService.depositCheck("bobs", "second", 500);
+        token = bankService.openSession("alice", "secret").get();
+
+        assertEquals(403, send("GET", "/accounts/second", null).statusCode());
+        assertEquals(403, send("GET", "/accounts/second/checks", null).statusCode());
+        assertEquals(403, send("POST", "/accounts/second/withdrawals", "{\"amount\":1}").statusCode());
+        assertEquals(403, send("DELETE", "/accounts/second", null).statusCode());
+        assertEquals(403, send("POST", "/accounts", "{\"accountId\":\"third\",\"ownerId\":\"bob\"}").statusCode());
+        assertEquals(403, send("POST", "/transfers",
+                "{\"fromAccountId\":\"second\",\"toAccountId\":\"first\",\"amount\":1}").statusCode());
+        assertEquals(403, send("POST", "/checks", "{\"checkId\":\"c1\",\"accountId\":\"second\",\"amount\":1}")
+                .statusCode());
+        assertEquals(403, send("POST", "/checks/bobs/validate", null).statusCode());
+        assertEquals(403, send("DELETE", "/checks/bobs", null).statusCode());
+        assertEquals(403, send("GET", "/users/bob", null).statusCode());
+        assertEquals(403, send("GET", "/users/bob/accounts", null).statusCode());
+        assertEquals(1000, bankService.findAccount("second").get().getBalance());
+        assertEquals(500, bankService.getPendingCheckTotalForAccount("second"));
+
+        assertEquals(200, send("GET", "/accounts/first", null).statusCode());
+        assertEquals(200, send("POST", "/transfers",
+                "{\"fromAccountId\":\"first\",\"toAccountId\":\"second\",\"amount\":1}").statusCode());
+        assertEquals(201, send("POST", "/accounts", "{\"accountId\":\"third\",\"ownerId\":\"alice\"}").statusCode());
+        assertEquals(200, send("GET", "/users/alice/accounts", null).statusCode());
+        assertEquals(1100, bankService.findAccount("second").get().getBalance());
+    }
+}
@@ -14,7 +14,7 @@ public class BankServiceAccountListTest {
     private static final String TEST_USER_ID = "testUser";
     private static final String TEST_ACCOUNT_ID_1 = "testAccount1";
     private static final String TEST_ACCOUNT_ID_2 = "testAccount2";
-    private static final float INITIAL_BALANCE = 100.0f;
+    private static final long INITIAL_BALANCE = 10000;
 
     @BeforeAll
     static void setup() throws SQLException {
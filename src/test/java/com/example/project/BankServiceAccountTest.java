@@ -14,7 +14,7 @@ public class BankServiceAccountTest {
 
     private static BankService bankService;
     private static final String TEST_ACCOUNT_ID = "testAccount";
-    private static final float INITIAL_BALANCE = 100f;
+    private static final long INITIAL_BALANCE = 10000;
     private static final String OWNER_ID = "testUser";
 
     @BeforeAll
@@ -44,11 +44,11 @@ public class BankServiceAccountTest {
     @Test
     @Order(3)
     void testUpdateAccount() throws SQLException {
-        Account updatedAccount = new Account(TEST_ACCOUNT_ID, 200f, OWNER_ID);
+        Account updatedAccount = new Account(TEST_ACCOUNT_ID, 20000, OWNER_ID);
         bankService.updateAccount(updatedAccount);
         Optional<Account> foundAccount = bankService.findAccount(TEST_ACCOUNT_ID);
         assertTrue(foundAccount.isPresent());
-        assertEquals(200f, foundAccount.get().getBalance());
+        assertEquals(20000, foundAccount.get().getBalance());
     }
 
     @Test
@@ -0,0 +1,116 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceAsyncTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+    private BankServiceAsync async;
+
+    private void open(int queueCapacity, long enqueueTimeoutMillis) {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("async.db"));
+        config.setAsyncWriteQueueCapacity(queueCapacity);
+        config.setAsyncEnqueueTimeoutMillis(enqueueTimeoutMillis);
+        bankService = new BankService(config);
+        async = new BankServiceAsync(bankService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        async.close();
+        bankService.disconnect();
+    }
+
+    @Test
+    void testConcurrentTransfersThroughWriterQueue() throws Exception {
+        open(10000, 1000);
+        async.addAccount(new Account("first", 100000, "alice")).get();
+        async.addAccount(new Account("second", 100000, "alice")).get();
+
+        List<CompletableFuture<Void>> transfers = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            transfers.add(i % 2 == 0
+                    ? async.transferAmount("first", "second", 100)
+                    : async.transferAmount("second", "first", 300));
+        }
+        CompletableFuture.allOf(transfers.toArray(new CompletableFuture<?>[0])).get();
+
+        assertEquals(100000 - 250 * 100 + 250 * 300, async.findAccount("first").get().get().getBalance());
+        assertEquals(100000 + 250 * 100 - 250 * 300, async.findAccount("second").get().get().getBalance());
+        assertEquals(2, async.getAccountsForUser("alice").get().size());
+        assertEquals(502, async.getMetrics().getWritesCompleted());
+    }
+
+    @Test
+    void testFailuresCompleteExceptionally() throws Exception {
+        open(10000, 1000);
+        async.addAccount(new Account("first", 100, "alice")).get();
+        async.addAccount(new Account("second", 0, "alice")).get();
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> async.transferAmount("first", "second", 500).get());
+        assertTrue(error.getCause() instanceof SQLException);
+        async.depositCheck("check", "second", 50).get();
+        async.validateCheck("check").get();
+        assertEquals(50, async.findAccount("second").get().get().getBalance());
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws Exception {
+        open(1, 0);
+        async.addAccount(new Account("first", 100, "alice")).get();
+
+        // Hold the write connection so the writer thread stalls on its first task
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread blocker = new Thread(() -> {
+            try {
+                bankService.inWriteTransaction(conn -> {
+                    held.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        blocker.start();
+        held.await();
+
+        CompletableFuture<Void> running = async.depositAmount("first", 1);
+        while (async.getQueueDepth() > 0) {
+            Thread.sleep(1);
+        }
+        CompletableFuture<Void> queued = async.depositAmount("first", 1);
+        CompletableFuture<Void> rejected = async.depositAmount("first", 1);
+        ExecutionException error = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(error.getCause() instanceof RejectedExecutionException);
+        assertEquals(1, async.getMetrics().getRejected());
+
+        release.countDown();
+        blocker.join();
+        running.get();
+        queued.get();
+        assertEquals(102, bankService.findAccount("first").get().getBalance());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceBatchTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String OWNER_ID = "batchUser";
+
+    private BankService bankService;
+
+    @BeforeEach
+    void setup() {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("batch.db"));
+        config.setBatchChunkSize(7);
+        bankService = new BankService(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testAddAccountsReportsDuplicates() throws SQLException {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            accounts.add(new Account("account" + i, 1000, OWNER_ID));
+        }
+        accounts.add(new Account("account3", 1000, OWNER_ID));
+
+        BatchResult result = bankService.addAccounts(accounts);
+        assertEquals(20, result.getSucceeded());
+        assertEquals(1, result.getFailed());
+        assertTrue(result.getFailures().containsKey("account3"));
+        assertEquals(20, bankService.getAccountsForUser(OWNER_ID).size());
+    }
+
+    @Test
+    void testDepositAndWithdrawAmounts() throws SQLException {
+        bankService.addAccount(new Account("first", 10000, OWNER_ID));
+        bankService.addAccount(new Account("second", 10000, OWNER_ID));
+
+        Map<String, Long> deposits = new LinkedHashMap<>();
+        deposits.put("first", 2500L);
+        deposits.put("missing", 500L);
+        deposits.put("second", 5000L);
+        BatchResult depositResult = bankService.depositAmounts(deposits);
+        assertEquals(2, depositResult.getSucceeded());
+        assertEquals(Map.of("missing", "No matching row."), depositResult.getFailures());
+
+        Map<String, Long> withdrawals = new LinkedHashMap<>();
+        withdrawals.put("first", 500L);
+        assertTrue(bankService.withdrawAmounts(withdrawals).isSuccessful());
+
+        assertEquals(12000, bankService.findAccount("first").get().getBalance());
+        assertEquals(15000, bankService.findAccount("second").get().getBalance());
+    }
+
+    @Test
+    void testDepositChecks() throws SQLException {
+        bankService.addAccount(new Account("checkAccount", 0, OWNER_ID));
+        List<Check> checks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            checks.add(new Check("check" + i, 500, "checkAccount", false));
+        }
+        assertTrue(bankService.depositChecks(checks).isSuccessful());
+        assertEquals(10, bankService.getUnvalidatedChecksForAccount("checkAccount").size());
+    }
+}
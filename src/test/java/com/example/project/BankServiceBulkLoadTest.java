@@ -0,0 +1,214 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceBulkLoadTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+
+    private BankService newService(String name) {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve(name));
+        config.setBulkTransactionRows(10);
+        return new BankService(config);
+    }
+
+    @BeforeEach
+    void setUp() {
+        bankService = newService("bulk.db");
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    private static ByteArrayInputStream csv(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String accountsCsv(int from, int to) {
+        StringBuilder csv = new StringBuilder("accountId,balance,ownerId\n");
+        for (int i = from; i < to; i++) {
+            csv.append(String.format("account%03d,%d.50,alice\n", i, i));
+        }
+        return csv.toString();
+    }
+
+    private long indexCount() throws SQLException {
+        return bankService.inWriteTransaction(conn -> {
+            try (ResultSet rs = conn.getConnection().createStatement().executeQuery(
+                    "SELECT COUNT(*) FROM sqlite_master WHERE tbl_name = 'accounts' AND sql IS NOT NULL "
+                            + "AND type IN ('index', 'trigger')")) {
+                return rs.getLong(1);
+            }
+        });
+    }
+
+    @Test
+    void testCsvImportAndExport() throws Exception {
+        BulkLoader loader = new BulkLoader(bankService);
+        long indexes = indexCount();
+        String users = "id,password,role\nalice,\"pass,with \"\"quotes\"\"\",client\nbob,secret,admin\n";
+        assertEquals(2, loader.load("users", BulkEntity.USERS, BulkFormat.CSV, csv(users)).getRows());
+        BulkReport accounts = loader.load("accounts", BulkEntity.ACCOUNTS, BulkFormat.CSV, csv(accountsCsv(0, 25)));
+        assertEquals(25, accounts.getRows());
+        assertTrue(accounts.isVerified(), accounts.toString());
+        assertTrue(accounts.getRowsPerSecond() > 0);
+        String checks = "checkId,amount,accountId,isValidated\ncheck1,12.34,account001,false\ncheck2,1.00,account002,true\n";
+        assertTrue(loader.load("checks", BulkEntity.CHECKS, BulkFormat.CSV, csv(checks)).isVerified());
+
+        assertEquals(indexes, indexCount());
+        assertEquals("pass,with \"quotes\"", bankService.findUser("alice").get().getPassword());
+        assertEquals(350, bankService.findAccount("account003").get().getBalance());
+        assertEquals(1234, bankService.getPendingCheckTotalForAccount("account001"));
+        assertEquals(30000 + 25 * 50, bankService.getTotalBalanceForUser("alice"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, loader.export(BulkEntity.USERS, BulkFormat.CSV, out).getRows());
+        assertEquals(users, out.toString(StandardCharsets.UTF_8));
+        out.reset();
+        loader.export(BulkEntity.ACCOUNTS, BulkFormat.CSV, out);
+        assertEquals(accountsCsv(0, 25), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testBlankLinesAreSkippedAndErrorsNameThePhysicalLine() throws Exception {
+        BulkLoader loader = new BulkLoader(bankService);
+        String users = "id,password,role\nalice,secret,client\n\nbob,secret,admin\n\n";
+        assertEquals(2, loader.load("users", BulkEntity.USERS, BulkFormat.CSV, csv(users)).getRows());
+
+        String broken = "id,password,role\ncarol,\"two\nlines\",client\ndave,secret\n";
+        IOException error = assertThrows(IOException.class,
+                () -> loader.load("broken", BulkEntity.USERS, BulkFormat.CSV, csv(broken)));
+        assertTrue(error.getMessage().startsWith("Line 4:"), error.getMessage());
+    }
+
+    @Test
+    void testImportedHashesMustBeUsable() throws Exception {
+        BulkLoader loader = new BulkLoader(bankService);
+        String exported = "id,password,role\nalice,pbkdf2$1000$c2FsdA==$aGFzaA==,client\n";
+        assertEquals(1, loader.load("users", BulkEntity.USERS, BulkFormat.CSV, csv(exported)).getRows());
+        assertEquals("pbkdf2$1000$c2FsdA==$aGFzaA==", bankService.findUser("alice").get().getPassword());
+
+        String costly = "id,password,role\nbob,pbkdf2$999999999$c2FsdA==$aGFzaA==,client\n";
+        assertThrows(IOException.class, () -> loader.load("costly", BulkEntity.USERS, BulkFormat.CSV, csv(costly)));
+        assertTrue(bankService.findUser("bob").isEmpty());
+    }
+
+    @Test
+    void testBinaryRoundTrip() throws Exception {
+        BulkLoader loader = new BulkLoader(bankService);
+        loader.load("accounts", BulkEntity.ACCOUNTS, BulkFormat.CSV, csv(accountsCsv(0, 42)));
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        assertEquals(42, loader.export(BulkEntity.ACCOUNTS, BulkFormat.BINARY, binary).getRows());
+
+        BankService copy = newService("copy.db");
+        try {
+            BulkLoader copyLoader = new BulkLoader(copy);
+            BulkReport report = copyLoader.load("accounts", BulkEntity.ACCOUNTS, BulkFormat.BINARY,
+                    new ByteArrayInputStream(binary.toByteArray()));
+            assertEquals(42, report.getRows());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            copyLoader.export(BulkEntity.ACCOUNTS, BulkFormat.CSV, out);
+            assertEquals(accountsCsv(0, 42), out.toString(StandardCharsets.UTF_8));
+        } finally {
+            copy.disconnect();
+        }
+        assertThrows(IOException.class, () -> loader.load("wrong", BulkEntity.USERS, BulkFormat.BINARY,
+                new ByteArrayInputStream(binary.toByteArray())));
+    }
+
+    @Test
+    void testInterruptedLoadResumes() throws Exception {
+        BulkLoader loader = new BulkLoader(bankService);
+        bankService.addUser(new User("alice", "password", "client"));
+        long indexes = indexCount();
+        // Row 26 repeats an id, the third batch fails after two have committed
+        String broken = accountsCsv(0, 25) + "account000,1.00,alice\n" + accountsCsv(26, 35).substring(26);
+        assertThrows(SQLException.class, () -> loader.load("job", BulkEntity.ACCOUNTS, BulkFormat.CSV, csv(broken)));
+        assertEquals(20, bankService.getAccountsForUser("alice").size());
+        assertEquals(indexes, indexCount());
+        assertTrue(bankService.verifySummaries().isEmpty());
+
+        BulkReport resumed = loader.load("job", BulkEntity.ACCOUNTS, BulkFormat.CSV, csv(accountsCsv(0, 35)));
+        assertEquals(20, resumed.getResumedRows());
+        assertEquals(15, resumed.getRows());
+        assertTrue(resumed.isVerified(), resumed.toString());
+        assertEquals(35, bankService.getAccountsForUser("alice").size());
+
+        BulkReport again = loader.load("job", BulkEntity.ACCOUNTS, BulkFormat.CSV, csv(accountsCsv(0, 35)));
+        assertEquals(0, again.getRows());
+        assertEquals(35, again.getResumedRows());
+    }
+
+    @Test
+    void testIndexesDroppedByACrashedLoadAreRecreatedOnStart() throws Exception {
+        long indexes = indexCount();
+        bankService.addAccount(new Account("first", 1000, "alice"));
+        // What a crash in the middle of an accounts import leaves behind
+        bankService.inWriteTransaction(conn -> {
+            try (Statement stmt = conn.getConnection().createStatement()) {
+                stmt.executeUpdate("INSERT INTO bulk_load_deferred (jobId, name, sql) SELECT 'crashed', name, sql "
+                        + "FROM sqlite_master WHERE tbl_name = 'accounts' AND type IN ('index', 'trigger') "
+                        + "AND sql IS NOT NULL");
+                List<String> drops = new ArrayList<>();
+                try (ResultSet rs = stmt.executeQuery("SELECT type, name FROM sqlite_master WHERE tbl_name = 'accounts' "
+                        + "AND type IN ('index', 'trigger') AND sql IS NOT NULL")) {
+                    while (rs.next()) {
+                        drops.add("DROP " + rs.getString(1) + " " + rs.getString(2));
+                    }
+                }
+                for (String drop : drops) {
+                    stmt.execute(drop);
+                }
+                return stmt.executeUpdate("INSERT INTO accounts VALUES ('second', 500, 'alice')");
+            }
+        });
+        assertEquals(0, indexCount());
+
+        bankService.disconnect();
+        bankService = newService("bulk.db");
+        assertEquals(indexes, indexCount());
+        assertTrue(bankService.verifySummaries().isEmpty());
+        assertEquals(1500, bankService.getTotalBalanceForUser("alice"));
+    }
+
+    @Test
+    void testImportedAccountsReachTheLedger() throws Exception {
+        bankService.disconnect();
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("ledger.db"));
+        config.setBulkTransactionRows(10);
+        config.setLedgerEnabled(true);
+        bankService = new BankService(config);
+        bankService.addUser(new User("alice", "password", "client"));
+        bankService.addAccount(new Account("existing", 1000, "alice"));
+        bankService.depositAmount("existing", 500);
+
+        BulkReport report = new BulkLoader(bankService).load("accounts", BulkEntity.ACCOUNTS, BulkFormat.CSV,
+                csv(accountsCsv(0, 25)));
+        assertTrue(report.isVerified(), report.toString());
+        assertEquals(350, bankService.findAccount("account003").get().getBalance());
+        bankService.transferAmount("account003", "existing", 100);
+        assertEquals(1600, bankService.findAccount("existing").get().getBalance());
+        assertEquals(26, bankService.getAccountsForUser("alice").size());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+
+    private BankService newService(int maxEntries, long ttlMillis) {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("cache.db"));
+        config.setCacheEnabled(true);
+        config.setCacheMaxEntries(maxEntries);
+        config.setCacheTtlMillis(ttlMillis);
+        return new BankService(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testWritesInvalidateCachedAccounts() throws SQLException {
+        bankService = newService(100, 60_000);
+        bankService.addAccount(new Account("first", 10000, "alice"));
+        bankService.addAccount(new Account("second", 10000, "alice"));
+
+        assertEquals(10000, bankService.findAccount("first").get().getBalance());
+        assertEquals(10000, bankService.findAccount("first").get().getBalance());
+        assertEquals(2, bankService.getAccountsForUser("alice").size());
+        assertEquals(1, bankService.getCacheStats().get("accounts").getHits());
+
+        bankService.depositAmount("first", 500);
+        assertEquals(10500, bankService.findAccount("first").get().getBalance());
+        bankService.transferAmount("first", "second", 1000);
+        assertEquals(9500, bankService.findAccount("first").get().getBalance());
+        assertEquals(11000, bankService.getAccountsForUser("alice").stream()
+                .filter(account -> account.getAccountId().equals("second")).findFirst().get().getBalance());
+
+        bankService.depositCheck("check", "second", 200);
+        bankService.validateCheck("check");
+        assertEquals(11200, bankService.findAccount("second").get().getBalance());
+
+        // Moving an account to another owner drops both owners' lists
+        assertEquals(0, bankService.getAccountsForUser("bob").size());
+        bankService.updateAccount(new Account("second", 11200, "bob"));
+        assertEquals(1, bankService.getAccountsForUser("alice").size());
+        assertEquals(1, bankService.getAccountsForUser("bob").size());
+
+        bankService.removeAccount("first");
+        assertFalse(bankService.findAccount("first").isPresent());
+        assertEquals(0, bankService.getAccountsForUser("alice").size());
+    }
+
+    @Test
+    void testCachedObjectsAreCopies() throws SQLException {
+        bankService = newService(100, 60_000);
+        bankService.addAccount(new Account("account", 10000, "alice"));
+        bankService.findAccount("account").get().setBalance(0);
+        assertEquals(10000, bankService.findAccount("account").get().getBalance());
+    }
+
+    @Test
+    void testUserUpdatesInvalidate() throws SQLException {
+        bankService = newService(100, 60_000);
+        bankService.addUser(new User("alice", "secret", "client"));
+        assertEquals("client", bankService.findUser("alice").get().getRole());
+        bankService.updateUser(new User("alice", "secret", "admin"));
+        assertEquals("admin", bankService.findUser("alice").get().getRole());
+        bankService.removeUser("alice");
+        assertFalse(bankService.findUser("alice").isPresent());
+    }
+
+    @Test
+    void testSizeAndTtlEviction() throws Exception {
+        bankService = newService(2, 50);
+        for (int i = 0; i < 3; i++) {
+            bankService.addAccount(new Account("account" + i, 100, "alice"));
+            bankService.findAccount("account" + i);
+        }
+        CacheStats stats = bankService.getCacheStats().get("accounts");
+        assertEquals(1, stats.getEvictions());
+        assertEquals(2, stats.getSize());
+
+        Thread.sleep(100);
+        bankService.findAccount("account2");
+        assertEquals(1, bankService.getCacheStats().get("accounts").getExpirations());
+    }
+}
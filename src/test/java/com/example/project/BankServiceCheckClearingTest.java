@@ -0,0 +1,82 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceCheckClearingTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String OWNER_ID = "clearingUser";
+
+    private BankService bankService;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        bankService = new BankService("jdbc:sqlite:" + tempDir.resolve("clearing.db"));
+        bankService.addAccount(new Account("first", 0, OWNER_ID));
+        bankService.addAccount(new Account("second", 0, OWNER_ID));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testValidateChecksReportsEveryCheck() throws SQLException {
+        bankService.depositCheck("check1", "first", 1000);
+        bankService.depositCheck("check2", "first", 1500);
+        bankService.depositCheck("check3", "second", 2000);
+        bankService.depositCheck("orphan", "missing", 500);
+        bankService.validateCheck("check3");
+
+        CheckClearingReport report = bankService.validateChecks(
+                List.of("check1", "check2", "check3", "unknown", "orphan"));
+        assertEquals(CheckOutcome.CLEARED, report.getOutcome("check1"));
+        assertEquals(CheckOutcome.CLEARED, report.getOutcome("check2"));
+        assertEquals(CheckOutcome.ALREADY_VALIDATED, report.getOutcome("check3"));
+        assertEquals(CheckOutcome.NOT_FOUND, report.getOutcome("unknown"));
+        assertEquals(CheckOutcome.ACCOUNT_NOT_FOUND, report.getOutcome("orphan"));
+        assertEquals(2500L, report.getCreditedAmounts().get("first"));
+
+        assertEquals(2500, bankService.findAccount("first").get().getBalance());
+        assertEquals(2000, bankService.findAccount("second").get().getBalance());
+        assertTrue(bankService.getUnvalidatedChecksForAccount("first").isEmpty());
+        assertEquals(1, bankService.getUnvalidatedChecksForAccount("missing").size());
+    }
+
+    @Test
+    void testDuplicateCheckIdsAreCreditedOnce() throws SQLException {
+        bankService.depositCheck("check1", "first", 1000);
+
+        CheckClearingReport report = bankService.validateChecks(List.of("check1", "check1"));
+        assertEquals(1, report.count(CheckOutcome.CLEARED));
+        assertEquals(1000L, report.getCreditedAmounts().get("first"));
+        assertEquals(1000, bankService.findAccount("first").get().getBalance());
+    }
+
+    @Test
+    void testValidateAllPendingForAccount() throws SQLException {
+        List<Check> checks = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            checks.add(new Check("pending" + i, 200, "first", false));
+        }
+        bankService.depositChecks(checks);
+        bankService.depositCheck("other", "second", 100);
+
+        CheckClearingReport report = bankService.validateAllPendingForAccount("first");
+        assertEquals(500, report.count(CheckOutcome.CLEARED));
+        assertEquals(100000, bankService.findAccount("first").get().getBalance());
+        assertTrue(bankService.getUnvalidatedChecksForAccount("first").isEmpty());
+        assertEquals(1, bankService.getUnvalidatedChecksForAccount("second").size());
+    }
+}
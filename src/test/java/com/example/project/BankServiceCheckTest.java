@@ -17,8 +17,8 @@ public class BankServiceCheckTest {
     private static final String TEST_ACCOUNT_ID = "testAccount";
     private static final String TEST_CHECK_ID_1 = "testCheck1";
     private static final String TEST_CHECK_ID_2 = "testCheck2";
-    private static final float INITIAL_BALANCE = 100.0f;
-    private static final float CHECK_AMOUNT = 50.0f;
+    private static final long INITIAL_BALANCE = 10000;
+    private static final long CHECK_AMOUNT = 5000;
 
     @BeforeAll
     static void setup() throws SQLException {
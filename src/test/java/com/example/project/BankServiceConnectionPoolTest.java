@@ -0,0 +1,79 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceConnectionPoolTest {
+
+    @TempDir
+    static Path tempDir;
+
+    private static BankService bankService;
+    private static final String TEST_ACCOUNT_ID = "poolAccount";
+    private static final String OWNER_ID = "poolUser";
+
+    @BeforeAll
+    static void setup() throws SQLException {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("pool.db"));
+        config.setReaderPoolSize(4);
+        bankService = new BankService(config);
+        bankService.addAccount(new Account(TEST_ACCOUNT_ID, 10000, OWNER_ID));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testConcurrentReadsWhileWriting() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<Account>>> reads = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                reads.add(executor.submit(() -> bankService.findAccount(TEST_ACCOUNT_ID)));
+                if (i % 20 == 0) {
+                    executor.submit(() -> {
+                        bankService.depositAmount(TEST_ACCOUNT_ID, 100);
+                        return null;
+                    });
+                }
+            }
+            for (Future<Optional<Account>> read : reads) {
+                assertTrue(read.get().isPresent());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        PoolMetrics metrics = bankService.getPoolMetrics();
+        assertTrue(metrics.getReaderCheckouts() >= 200);
+        assertTrue(metrics.getReadersOpen() <= 4);
+        assertEquals(0, metrics.getReadersInUse());
+        assertEquals(0, metrics.getTimeouts());
+    }
+
+    @Test
+    void testInMemoryDatabaseSharesWriter() throws SQLException {
+        BankService memoryService = new BankService("jdbc:sqlite::memory:");
+        try {
+            memoryService.addAccount(new Account("memoryAccount", 1000, OWNER_ID));
+            assertTrue(memoryService.findAccount("memoryAccount").isPresent());
+            assertEquals(0, memoryService.getPoolMetrics().getReadersOpen());
+        } finally {
+            memoryService.disconnect();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceDurabilityTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+
+    private BankService newService(DurabilityProfile profile, long walSizeLimitBytes) {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("durability.db"));
+        config.setDurabilityProfile(profile);
+        // Checkpoints are triggered by hand in these tests
+        config.setWalCheckpointIntervalMillis(60_000);
+        config.setWalSizeLimitBytes(walSizeLimitBytes);
+        return new BankService(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testProfilesAreReadBack() throws SQLException {
+        for (DurabilityProfile profile : DurabilityProfile.values()) {
+            bankService = newService(profile, 64L * 1024 * 1024);
+            Map<String, String> settings = bankService.getDurabilitySettings();
+            assertEquals("wal", settings.get("journal_mode"));
+            for (Map.Entry<String, String> pragma : profile.pragmas().entrySet()) {
+                assertEquals(pragma.getValue(), settings.get(pragma.getKey()), profile + " " + pragma.getKey());
+            }
+            bankService.disconnect();
+        }
+        bankService = newService(DurabilityProfile.THROUGHPUT, 64L * 1024 * 1024);
+        assertEquals("1", bankService.getDurabilitySettings().get("synchronous"));
+        assertEquals("2", bankService.getDurabilitySettings().get("temp_store"));
+    }
+
+    @Test
+    void testCheckpointTruncatesOversizedWal() throws Exception {
+        bankService = newService(DurabilityProfile.BALANCED, 1);
+        for (int i = 0; i < 200; i++) {
+            bankService.addAccount(new Account("account" + i, 1000, "alice"));
+        }
+        Path wal = tempDir.resolve("durability.db-wal");
+        assertTrue(Files.size(wal) > 0);
+
+        assertTrue(bankService.checkpointWal() > 0);
+        assertEquals(0, Files.size(wal));
+        assertEquals(1, bankService.getPoolMetrics().getWalCheckpoints());
+        assertEquals(1, bankService.getPoolMetrics().getWalTruncations());
+        assertEquals(200, bankService.getAccountsForUser("alice").size());
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceEndOfDayTest {
+
+    private static final int ACCOUNTS = 250;
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+
+    private BankConfig newConfig(boolean ledger) {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("eod.db"));
+        config.setLedgerEnabled(ledger);
+        config.setBatchParallelism(4);
+        config.setBatchJobChunkRows(10);
+        return config;
+    }
+
+    private void open(boolean ledger) throws SQLException {
+        bankService = new BankService(newConfig(ledger));
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(new Account(String.format("account%04d", i), balance(i), "owner" + i % 10));
+        }
+        bankService.addAccounts(accounts);
+    }
+
+    private static long balance(int i) {
+        return i % 5 == 0 ? 0 : i * 1234567L;
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testInterestIsAccruedOnEveryPositiveBalance() throws SQLException {
+        open(false);
+        InterestAccrualJob job = new InterestAccrualJob(365);
+        List<BatchStageReport> reports = new BatchEngine(bankService).run("day1", List.of(job));
+
+        BatchStageReport report = reports.get(0);
+        assertEquals("interest-accrual", report.getJob());
+        assertEquals(ACCOUNTS, report.getRowsScanned());
+        assertEquals(ACCOUNTS - ACCOUNTS / 5, report.getRowsChanged());
+        assertTrue(report.getRanges() > 1);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            long before = balance(i);
+            assertEquals(before + job.interest(before),
+                    bankService.findAccount(String.format("account%04d", i)).get().getBalance());
+        }
+        // 3.65% a year is 0.01% a day, rounded half-even to the cent
+        assertEquals(123, job.interest(1234567));
+        assertEquals(2, job.interest(25000));
+        assertEquals(4, job.interest(35000));
+    }
+
+    @Test
+    void testPendingChecksAreCleared() throws SQLException {
+        open(false);
+        List<Check> checks = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i += 3) {
+            checks.add(new Check("check" + i, 500, String.format("account%04d", i), false));
+        }
+        bankService.depositChecks(checks);
+        bankService.validateCheck("check0");
+
+        BatchStageReport report = new BatchEngine(bankService).run("day1", List.of(new CheckClearingJob())).get(0);
+
+        assertEquals(checks.size() - 1, report.getRowsChanged());
+        assertEquals(balance(3) + 500, bankService.findAccount("account0003").get().getBalance());
+        assertEquals(500, bankService.findAccount("account0000").get().getBalance());
+        assertEquals(0, bankService.getPendingCheckTotalForAccount("account0003"));
+        assertTrue(bankService.verifySummaries().isEmpty());
+    }
+
+    @Test
+    void testInterruptedRunResumesWithoutRepeatingAccounts() throws SQLException {
+        open(false);
+        InterestAccrualJob interest = new InterestAccrualJob(365);
+        AtomicInteger chunks = new AtomicInteger();
+        BatchJob<Map<String, Long>> crashing = new BatchJob<>() {
+            @Override
+            public String getName() {
+                return interest.getName();
+            }
+
+            @Override
+            public Map<String, Long> prepare(PooledConnection conn, List<String> accountIds) throws SQLException {
+                return interest.prepare(conn, accountIds);
+            }
+
+            @Override
+            public int apply(PooledConnection conn, Map<String, Long> prepared) throws SQLException {
+                if (chunks.incrementAndGet() == 7) {
+                    throw new SQLException("Simulated crash");
+                }
+                return interest.apply(conn, prepared);
+            }
+        };
+        BatchEngine engine = new BatchEngine(bankService);
+        SQLException crash = assertThrows(SQLException.class, () -> engine.run("day1", List.of(crashing)));
+        assertEquals("Simulated crash", crash.getMessage());
+
+        BatchStageReport resumed = engine.run("day1", List.of(interest)).get(0);
+        assertTrue(resumed.getResumedRows() > 0);
+        assertEquals(ACCOUNTS, resumed.getResumedRows() + resumed.getRowsScanned());
+        for (int i = 0; i < ACCOUNTS; i++) {
+            long before = balance(i);
+            assertEquals(before + interest.interest(before),
+                    bankService.findAccount(String.format("account%04d", i)).get().getBalance());
+        }
+
+        // A finished run is not applied again, a new run id is a new day
+        BatchStageReport again = engine.run("day1", List.of(interest)).get(0);
+        assertEquals(0, again.getRowsScanned());
+        assertEquals(again.getRanges(), again.getResumedRanges());
+        assertEquals(balance(1) + interest.interest(balance(1)), bankService.findAccount("account0001").get().getBalance());
+        engine.run("day2", List.of(interest));
+        assertTrue(bankService.findAccount("account0001").get().getBalance() > balance(1) + interest.interest(balance(1)));
+    }
+
+    @Test
+    void testStagesRunInOrderWithTheLedger() throws SQLException {
+        open(true);
+        bankService.depositAmount("account0001", 100000);
+        bankService.depositCheck("check1", "account0001", 865433);
+
+        List<BatchStageReport> reports = new BatchEngine(bankService)
+                .run("day1", List.of(new CheckClearingJob(), new InterestAccrualJob(365)));
+
+        assertEquals(List.of("check-clearing", "interest-accrual"),
+                List.of(reports.get(0).getJob(), reports.get(1).getJob()));
+        // Balance 1234567 + 100000 + 865433 = 2200000, then 0.01% interest
+        assertEquals(2200220, bankService.findAccount("account0001").get().getBalance());
+        bankService.flushLedger();
+        assertEquals(2200220, bankService.findAccount("account0001").get().getBalance());
+        assertTrue(bankService.verifySummaries().isEmpty());
+    }
+}
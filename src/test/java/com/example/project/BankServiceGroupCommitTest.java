@@ -0,0 +1,119 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceGroupCommitTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("group.db"));
+        config.setGroupCommitEnabled(true);
+        config.setGroupCommitWindowMicros(20_000);
+        config.setGroupCommitMaxSize(64);
+        bankService = new BankService(config);
+        bankService.addAccount(new Account("first", 100000, "alice"));
+        bankService.addAccount(new Account("second", 100000, "alice"));
+        executor = Executors.newFixedThreadPool(16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        bankService.disconnect();
+    }
+
+    @Test
+    void testConcurrentMutationsShareCommits() throws Exception {
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            int n = i;
+            calls.add(executor.submit(() -> {
+                switch (n % 4) {
+                    case 0:
+                        bankService.depositAmount("first", 10);
+                        break;
+                    case 1:
+                        bankService.withdrawAmount("second", 5);
+                        break;
+                    default:
+                        bankService.transferAmount("first", "second", 7);
+                        break;
+                }
+                return null;
+            }));
+        }
+        for (Future<?> call : calls) {
+            call.get();
+        }
+
+        assertEquals(100000 + 100 * 10 - 200 * 7, bankService.findAccount("first").get().getBalance());
+        assertEquals(100000 - 100 * 5 + 200 * 7, bankService.findAccount("second").get().getBalance());
+        assertEquals(400, bankService.getGroupCommitMutationCount());
+        assertTrue(bankService.getGroupCommitCount() < 400);
+    }
+
+    @Test
+    void testFailedMutationDoesNotPoisonItsGroup() throws Exception {
+        List<Future<?>> deposits = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            deposits.add(executor.submit(() -> {
+                bankService.depositAmount("second", 100);
+                return null;
+            }));
+        }
+        Future<?> overdraft = executor.submit(() -> {
+            bankService.transferAmount("first", "second", 1_000_000);
+            return null;
+        });
+        for (Future<?> deposit : deposits) {
+            deposit.get();
+        }
+        ExecutionException error = assertThrows(ExecutionException.class, overdraft::get);
+        assertTrue(error.getCause() instanceof SQLException);
+
+        assertEquals(100000, bankService.findAccount("first").get().getBalance());
+        assertEquals(100800, bankService.findAccount("second").get().getBalance());
+    }
+
+    @Test
+    void testMutationsRacingCloseAreAllAnswered() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            GroupCommitter committer = new GroupCommitter(bankService, 100, 64);
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(executor.submit(() -> {
+                    try {
+                        committer.execute(conn -> null);
+                    } catch (SQLException e) {
+                        assertEquals("Group commit is shut down.", e.getMessage());
+                    }
+                    return null;
+                }));
+            }
+            committer.close();
+            for (Future<?> call : calls) {
+                call.get(5, TimeUnit.SECONDS);
+            }
+        }
+    }
+}
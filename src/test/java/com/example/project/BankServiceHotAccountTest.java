@@ -0,0 +1,107 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceHotAccountTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("hot.db"));
+        config.setLedgerEnabled(true);
+        config.setHotAccounts(List.of("merchant"));
+        bankService = new BankService(config);
+        bankService.addAccount(new Account("merchant", 0, "shop"));
+        for (int i = 0; i < 8; i++) {
+            bankService.addAccount(new Account("customer" + i, 100000, "customer" + i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testConcurrentCreditsToHotAccountAddUp() throws Exception {
+        assertEquals(Set.of("merchant"), bankService.getHotAccounts());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String customer = "customer" + i;
+                calls.add(executor.submit(() -> {
+                    for (int n = 0; n < 500; n++) {
+                        bankService.transferAmount(customer, "merchant", 10);
+                        bankService.depositAmount("merchant", 1);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> call : calls) {
+                call.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(8 * 500 * 11, bankService.findAccount("merchant").get().getBalance());
+        assertEquals(95000, bankService.findAccount("customer3").get().getBalance());
+        bankService.flushLedger();
+        assertEquals(8 * 500 * 11, bankService.getTotalBalanceForUser("shop"));
+    }
+
+    @Test
+    void testDebitSeesCreditsHeldInCells() throws SQLException {
+        bankService.depositAmount("merchant", 700);
+        bankService.transferAmount("customer0", "merchant", 300);
+
+        assertThrows(SQLException.class, () -> bankService.transferAmount("merchant", "customer1", 1001));
+        bankService.transferAmount("merchant", "customer1", 1000);
+        assertEquals(0, bankService.findAccount("merchant").get().getBalance());
+        assertEquals(101000, bankService.findAccount("customer1").get().getBalance());
+    }
+
+    @Test
+    void testAccountsSwitchInAndOutOfHotMode() throws SQLException {
+        bankService.depositAmount("merchant", 500);
+        bankService.setHotAccount("merchant", false);
+        bankService.setHotAccount("customer0", true);
+        bankService.depositAmount("merchant", 500);
+        bankService.depositAmount("customer0", 500);
+
+        assertEquals(Set.of("customer0"), bankService.getHotAccounts());
+        assertEquals(1000, bankService.findAccount("merchant").get().getBalance());
+        assertEquals(100500, bankService.findAccount("customer0").get().getBalance());
+    }
+
+    @Test
+    void testHotAccountsNeedTheLedger() {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("plain.db"));
+        BankService plain = new BankService(config);
+        try {
+            assertThrows(SQLException.class, () -> plain.setHotAccount("merchant", true));
+            assertTrue(plain.getHotAccounts().isEmpty());
+        } finally {
+            plain.disconnect();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceIdempotencyTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+
+    private BankConfig newConfig() {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("idempotency.db"));
+        return config;
+    }
+
+    private BankService newService(BankConfig config) throws SQLException {
+        BankService service = new BankService(config);
+        if (service.findAccount("first").isEmpty()) {
+            service.addAccount(new Account("first", 10000, "alice"));
+            service.addAccount(new Account("second", 10000, "alice"));
+        }
+        return service;
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testRepeatedKeyAppliesOnce() throws SQLException {
+        bankService = newService(newConfig());
+
+        assertTrue(bankService.depositAmount("first", 500, "dep-1"));
+        assertFalse(bankService.depositAmount("first", 500, "dep-1"));
+        assertTrue(bankService.withdrawAmount("second", 300, "wd-1"));
+        assertFalse(bankService.withdrawAmount("second", 300, "wd-1"));
+        assertTrue(bankService.transferAmount("first", "second", 1000, "tr-1"));
+        assertFalse(bankService.transferAmount("first", "second", 1000, "tr-1"));
+
+        assertEquals(9500, bankService.findAccount("first").get().getBalance());
+        assertEquals(10700, bankService.findAccount("second").get().getBalance());
+        assertEquals(3, bankService.getIdempotencyStats().getDuplicates());
+    }
+
+    @Test
+    void testKeyReusedForAnotherRequestFails() throws SQLException {
+        bankService = newService(newConfig());
+        bankService.depositAmount("first", 500, "dep-1");
+
+        assertThrows(SQLException.class, () -> bankService.depositAmount("first", 600, "dep-1"));
+        assertThrows(SQLException.class, () -> bankService.withdrawAmount("first", 500, "dep-1"));
+        assertEquals(10500, bankService.findAccount("first").get().getBalance());
+    }
+
+    @Test
+    void testFailedTransferCanBeRetriedWithItsKey() throws SQLException {
+        bankService = newService(newConfig());
+
+        assertThrows(SQLException.class, () -> bankService.transferAmount("first", "second", 15000, "tr-1"));
+        bankService.depositAmount("first", 5000);
+        assertTrue(bankService.transferAmount("first", "second", 15000, "tr-1"));
+
+        assertEquals(0, bankService.findAccount("first").get().getBalance());
+        assertEquals(25000, bankService.findAccount("second").get().getBalance());
+    }
+
+    @Test
+    void testNewKeysSkipTheTableAndOldKeysSurviveRestart() throws SQLException {
+        bankService = newService(newConfig());
+        for (int i = 0; i < 200; i++) {
+            bankService.depositAmount("first", 1, "dep-" + i);
+        }
+        assertEquals(0, bankService.getIdempotencyStats().getDiskLookups());
+        assertEquals(200, bankService.getIdempotencyStats().getFilterNegatives());
+
+        bankService.disconnect();
+        bankService = newService(newConfig());
+        assertFalse(bankService.depositAmount("first", 1, "dep-7"));
+        assertEquals(1, bankService.getIdempotencyStats().getDiskLookups());
+        // Answered from the recent keys the second time
+        assertFalse(bankService.depositAmount("first", 1, "dep-7"));
+        assertEquals(1, bankService.getIdempotencyStats().getDiskLookups());
+        assertEquals(1, bankService.getIdempotencyStats().getRecentHits());
+        assertEquals(10200, bankService.findAccount("first").get().getBalance());
+    }
+
+    @Test
+    void testExpiredKeysCanBeUsedAgain() throws Exception {
+        BankConfig config = newConfig();
+        config.setIdempotencyRetentionMillis(1);
+        config.setIdempotencyExpiryIntervalMillis(0);
+        bankService = newService(config);
+        bankService.depositAmount("first", 500, "dep-1");
+        Thread.sleep(10);
+
+        assertEquals(1, bankService.expireIdempotencyKeys());
+        assertTrue(bankService.depositAmount("first", 500, "dep-1"));
+        assertEquals(11000, bankService.findAccount("first").get().getBalance());
+    }
+
+    @Test
+    void testConcurrentRetriesApplyOnceWithLedgerAndGroupCommit() throws Exception {
+        for (boolean ledger : new boolean[]{true, false}) {
+            BankConfig config = newConfig();
+            config.setUrl("jdbc:sqlite:" + tempDir.resolve("idempotency-" + ledger + ".db"));
+            config.setLedgerEnabled(ledger);
+            config.setGroupCommitEnabled(!ledger);
+            bankService = newService(config);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Boolean>> calls = new ArrayList<>();
+                for (int i = 0; i < 64; i++) {
+                    String key = "tr-" + (i % 8);
+                    calls.add(executor.submit(() -> bankService.transferAmount("first", "second", 100, key)));
+                }
+                int applied = 0;
+                for (Future<Boolean> call : calls) {
+                    applied += call.get() ? 1 : 0;
+                }
+                assertEquals(8, applied);
+            } finally {
+                executor.shutdownNow();
+            }
+            bankService.flushLedger();
+            assertEquals(9200, bankService.findAccount("first").get().getBalance());
+            assertEquals(10800, bankService.findAccount("second").get().getBalance());
+            bankService.disconnect();
+        }
+        bankService = newService(newConfig());
+    }
+}
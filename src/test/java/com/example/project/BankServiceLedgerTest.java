@@ -0,0 +1,152 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceLedgerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String OWNER_ID = "ledgerUser";
+
+    private String url;
+    private BankService bankService;
+
+    @BeforeEach
+    void setup() {
+        url = "jdbc:sqlite:" + tempDir.resolve("ledger.db");
+        BankConfig config = new BankConfig();
+        config.setUrl(url);
+        config.setLedgerEnabled(true);
+        config.setLedgerFlushIntervalMillis(10_000);
+        bankService = new BankService(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    private Account readFromDisk(String accountId) throws SQLException {
+        BankService reader = new BankService(url);
+        try {
+            return reader.findAccount(accountId).orElseThrow();
+        } finally {
+            reader.disconnect();
+        }
+    }
+
+    @Test
+    void testBalancesAreServedFromMemoryAndWrittenBehind() throws SQLException {
+        bankService.addAccount(new Account("first", 10000, OWNER_ID));
+        bankService.addAccount(new Account("second", 10000, OWNER_ID));
+
+        bankService.depositAmount("first", 5000);
+        bankService.transferAmount("first", "second", 3000);
+        assertEquals(12000, bankService.findAccount("first").get().getBalance());
+        assertEquals(13000, bankService.findAccount("second").get().getBalance());
+        assertEquals(10000, readFromDisk("first").getBalance());
+
+        bankService.flushLedger();
+        assertEquals(12000, readFromDisk("first").getBalance());
+        assertEquals(13000, readFromDisk("second").getBalance());
+    }
+
+    @Test
+    void testSqlPathsStayCoherentWithLedger() throws SQLException {
+        bankService.addAccount(new Account("account", 10000, OWNER_ID));
+        bankService.depositAmount("account", 1000);
+        bankService.depositCheck("check", "account", 4000);
+        bankService.validateCheck("check");
+        assertEquals(15000, bankService.findAccount("account").get().getBalance());
+        assertEquals(15000, bankService.getAccountsForUser(OWNER_ID).get(0).getBalance());
+
+        bankService.removeAccount("account");
+        assertFalse(bankService.findAccount("account").isPresent());
+    }
+
+    @Test
+    void testConcurrentTransfersConserveMoney() throws Exception {
+        int accountCount = 8;
+        for (int i = 0; i < accountCount; i++) {
+            bankService.addAccount(new Account("account" + i, 10000, OWNER_ID));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int from = random.nextInt(accountCount);
+                    int to = random.nextInt(accountCount);
+                    try {
+                        bankService.transferAmount("account" + from, "account" + to, 1 + random.nextInt(20));
+                    } catch (SQLException e) {
+                        // Insufficient funds
+                    }
+                    if (random.nextInt(100) == 0) {
+                        bankService.flushLedger();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        bankService.flushLedger();
+
+        long total = 0;
+        for (int i = 0; i < accountCount; i++) {
+            Account account = readFromDisk("account" + i);
+            assertTrue(account.getBalance() >= 0);
+            total += account.getBalance();
+        }
+        assertEquals(10000 * accountCount, total);
+    }
+
+    @Test
+    void testFailedFlushKeepsTheBalancesDirty() throws SQLException {
+        bankService.addAccount(new Account("first", 10000, OWNER_ID));
+        bankService.addAccount(new Account("second", 10000, OWNER_ID));
+        // Writing balances fails while flush_blocked holds a row
+        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE flush_blocked (blocked INTEGER)");
+            stmt.executeUpdate("INSERT INTO flush_blocked VALUES (1)");
+            stmt.executeUpdate("CREATE TRIGGER block_flush BEFORE UPDATE ON accounts "
+                    + "WHEN EXISTS (SELECT 1 FROM flush_blocked) BEGIN SELECT RAISE(ABORT, 'flush blocked'); END");
+        }
+
+        bankService.depositAmount("first", 5000);
+        assertThrows(SQLException.class, () -> bankService.flushLedger());
+        assertEquals(1, bankService.getMetrics().getErrors(BankOperation.FLUSH_LEDGER));
+        // The pending deposit cannot be flushed, so SQL changing accounts does not run
+        assertThrows(SQLException.class, () -> bankService.removeAccount("second"));
+        assertTrue(bankService.findAccount("second").isPresent());
+        assertEquals(15000, bankService.findAccount("first").get().getBalance());
+
+        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM flush_blocked");
+        }
+        bankService.flushLedger();
+        assertEquals(15000, readFromDisk("first").getBalance());
+        assertEquals(10000, readFromDisk("second").getBalance());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+
+    @BeforeEach
+    void setUp() {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("metrics.db"));
+        config.setJmxEnabled(true);
+        config.setJmxName("metrics-test");
+        bankService = new BankService(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testCountsCallsErrorsAndLatencies() throws SQLException {
+        BankMetrics metrics = bankService.getMetrics();
+        bankService.addAccount(new Account("first", 10000, "alice"));
+        bankService.addAccount(new Account("second", 0, "alice"));
+        bankService.transferAmount("first", "second", 2500);
+        assertThrows(SQLException.class, () -> bankService.transferAmount("second", "first", 5000));
+        bankService.findAccount("first");
+
+        assertEquals(2, metrics.getCount(BankOperation.ADD_ACCOUNT));
+        assertEquals(2, metrics.getCount(BankOperation.TRANSFER_AMOUNT));
+        assertEquals(1, metrics.getErrors(BankOperation.TRANSFER_AMOUNT));
+        assertEquals(1, metrics.getCount(BankOperation.FIND_ACCOUNT));
+        assertEquals(0, metrics.getCount(BankOperation.DEPOSIT_AMOUNT));
+        assertEquals(2, metrics.getLatency(BankOperation.TRANSFER_AMOUNT).getCount());
+        assertTrue(metrics.getLatency(BankOperation.TRANSFER_AMOUNT).getPercentile(99) > 0);
+        assertEquals(5, metrics.getTotalCalls());
+        assertEquals(1, metrics.getTotalErrors());
+
+        metrics.reset();
+        assertEquals(0, metrics.getTotalCalls());
+    }
+
+    @Test
+    void testListenerSeesEveryCall() throws SQLException {
+        List<BankOperation> completed = new ArrayList<>();
+        List<BankOperation> failed = new ArrayList<>();
+        BankMetricsListener listener = new BankMetricsListener() {
+            @Override
+            public void operationCompleted(BankOperation operation, long nanos) {
+                completed.add(operation);
+            }
+
+            @Override
+            public void operationFailed(BankOperation operation, Exception error) {
+                failed.add(operation);
+            }
+        };
+        bankService.getMetrics().addListener(listener);
+        bankService.depositCheck("check", "missing", 100);
+        bankService.validateCheck("check");
+        assertThrows(SQLException.class, () -> bankService.validateCheck("check"));
+        assertEquals(List.of(BankOperation.DEPOSIT_CHECK, BankOperation.VALIDATE_CHECK, BankOperation.VALIDATE_CHECK),
+                completed);
+        assertEquals(List.of(BankOperation.VALIDATE_CHECK), failed);
+
+        bankService.getMetrics().removeListener(listener);
+        bankService.findUser("nobody");
+        assertEquals(3, completed.size());
+    }
+
+    @Test
+    void testPublishedOverJmx() throws Exception {
+        bankService.addUser(new User("alice", "password", "client"));
+        bankService.authenticateUser("alice", "password");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName root = new ObjectName("com.example.project:type=BankService,name=\"metrics-test\"");
+        ObjectName authenticate = new ObjectName(
+                "com.example.project:type=BankService,name=\"metrics-test\",operation=authenticateUser");
+        assertEquals(2L, server.getAttribute(root, "TotalCalls"));
+        assertEquals(1L, server.getAttribute(authenticate, "Count"));
+        assertTrue((Double) server.getAttribute(authenticate, "MaxMicros") > 0);
+
+        bankService.disconnect();
+        assertFalse(server.isRegistered(root));
+        assertFalse(server.isRegistered(authenticate));
+        // Reconnect so tearDown has something to close
+        bankService = new BankService("jdbc:sqlite:" + tempDir.resolve("metrics.db"));
+    }
+}
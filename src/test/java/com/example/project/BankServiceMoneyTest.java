@@ -0,0 +1,61 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceMoneyTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testParseAndFormat() {
+        assertEquals(1234, Money.parse("12.34"));
+        assertEquals(1200, Money.parse("12"));
+        assertEquals(-5, Money.parse("-0.05"));
+        assertEquals("12.34", Money.format(1234));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals(500, Money.ofUnits(5));
+        assertThrows(ArithmeticException.class, () -> Money.parse("0.001"));
+    }
+
+    @Test
+    void testRealColumnsAreMigratedToCents() throws SQLException {
+        String url = "jdbc:sqlite:" + tempDir.resolve("legacy.db");
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE accounts (accountId text PRIMARY KEY, balance real NOT NULL, "
+                    + "ownerId text NOT NULL)");
+            stmt.execute("CREATE TABLE checks (checkId text PRIMARY KEY, amount real NOT NULL, "
+                    + "accountId text NOT NULL, isValidated boolean NOT NULL)");
+            stmt.execute("INSERT INTO accounts VALUES ('legacy', 100.1, 'owner')");
+            stmt.execute("INSERT INTO checks VALUES ('legacyCheck', 0.29, 'legacy', false)");
+        }
+
+        BankService bankService = new BankService(url);
+        try {
+            assertEquals(10010, bankService.findAccount("legacy").get().getBalance());
+            assertEquals(29, bankService.getUnvalidatedChecksForAccount("legacy").get(0).getAmount());
+            bankService.validateCheck("legacyCheck");
+            assertEquals(10039, bankService.findAccount("legacy").get().getBalance());
+        } finally {
+            bankService.disconnect();
+        }
+
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT typeof(balance) FROM accounts")) {
+            assertTrue(rs.next());
+            assertEquals("integer", rs.getString(1));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceSchemaTest {
+
+    @TempDir
+    Path tempDir;
+
+    private String queryPlan(String url, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString("detail")).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    @Test
+    void testFreshDatabaseIsMigratedToLatestVersion() throws SQLException {
+        String url = "jdbc:sqlite:" + tempDir.resolve("schema.db");
+        BankService bankService = new BankService(url);
+        try {
+            assertEquals(new SchemaMigrator().getLatestVersion(), bankService.getSchemaVersion());
+        } finally {
+            bankService.disconnect();
+        }
+
+        assertTrue(queryPlan(url, "SELECT accountId FROM accounts WHERE ownerId = 'x'")
+                .contains("idx_accounts_owner"));
+        assertTrue(queryPlan(url, "SELECT checkId FROM checks WHERE accountId = 'x' AND isValidated = false")
+                .contains("idx_checks_pending"));
+    }
+
+    @Test
+    void testCurrentSchemaSkipsMigrations() throws SQLException {
+        String url = "jdbc:sqlite:" + tempDir.resolve("current.db");
+        new BankService(url).disconnect();
+
+        BankConfig config = new BankConfig();
+        config.setUrl(url);
+        try (ConnectionPool pool = new ConnectionPool(config);
+             PooledConnection conn = pool.acquireWriter()) {
+            assertEquals(0, new SchemaMigrator().migrate(conn));
+        }
+    }
+
+    @Test
+    void testMigrationsRejectOutOfOrderVersions() {
+        SchemaMigrator migrator = new SchemaMigrator();
+        assertThrows(IllegalArgumentException.class, () -> migrator.add(2, "Too old", conn -> null));
+    }
+}
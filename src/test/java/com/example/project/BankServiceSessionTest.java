@@ -0,0 +1,162 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceSessionTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+
+    private BankConfig newConfig(int iterations) {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("session.db"));
+        config.setPasswordHashIterations(iterations);
+        return config;
+    }
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        bankService = new BankService(newConfig(1000));
+        bankService.addUser(new User("alice", "secret", "client"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testPasswordsAreStoredHashed() throws SQLException {
+        String stored = bankService.findUser("alice").get().getPassword();
+        assertTrue(stored.startsWith("pbkdf2$1000$"));
+        assertTrue(bankService.authenticateUser("alice", "secret"));
+        assertFalse(bankService.authenticateUser("alice", "wrong"));
+        assertFalse(bankService.authenticateUser("alice", stored));
+        assertFalse(bankService.authenticateUser("nobody", "secret"));
+
+        // A null password keeps the stored one
+        bankService.updateUser(new User("alice", null, "admin"));
+        assertEquals(stored, bankService.findUser("alice").get().getPassword());
+        assertTrue(bankService.authenticateUser("alice", "secret"));
+    }
+
+    @Test
+    void testHashShapedPasswordsAreHashedLikeAnyOther() throws SQLException {
+        String costly = "pbkdf2$999999999$c2FsdA==$aGFzaA==";
+        bankService.addUser(new User("bob", costly, "client"));
+        assertNotEquals(costly, bankService.findUser("bob").get().getPassword());
+        assertTrue(bankService.authenticateUser("bob", costly));
+        assertFalse(bankService.authenticateUser("bob", "secret"));
+
+        String stored = bankService.findUser("alice").get().getPassword();
+        bankService.updateUser(new User("alice", stored, "client"));
+        assertFalse(bankService.authenticateUser("alice", "secret"));
+        assertTrue(bankService.authenticateUser("alice", stored));
+    }
+
+    @Test
+    void testUnusableStoredHashesFailTheLogin() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(newConfig(1000).getUrl());
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO users (id, password, role) VALUES "
+                    + "('costly', 'pbkdf2$999999999$c2FsdA==$aGFzaA==', 'client'), "
+                    + "('garbled', 'pbkdf2$1000$not base64!$???', 'client')");
+        }
+        assertFalse(bankService.authenticateUser("costly", "anything"));
+        assertFalse(bankService.authenticateUser("garbled", "anything"));
+        assertFalse(bankService.authenticateUser("garbled", "pbkdf2$1000$not base64!$???"));
+    }
+
+    @Test
+    void testPlaintextRowsAreRehashedOnLogin() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(newConfig(1000).getUrl());
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO users (id, password, role) VALUES ('bob', 'legacy', 'client')");
+        }
+        assertFalse(bankService.authenticateUser("bob", "wrong"));
+        assertEquals("legacy", bankService.findUser("bob").get().getPassword());
+
+        assertTrue(bankService.authenticateUser("bob", "legacy"));
+        assertTrue(bankService.findUser("bob").get().getPassword().startsWith("pbkdf2$"));
+        assertTrue(bankService.authenticateUser("bob", "legacy"));
+    }
+
+    @Test
+    void testWeakerHashesAreUpgradedOnLogin() throws SQLException {
+        bankService.disconnect();
+        bankService = new BankService(newConfig(2000));
+        assertTrue(bankService.findUser("alice").get().getPassword().startsWith("pbkdf2$1000$"));
+
+        assertTrue(bankService.openSession("alice", "secret").isPresent());
+        assertTrue(bankService.findUser("alice").get().getPassword().startsWith("pbkdf2$2000$"));
+    }
+
+    @Test
+    void testSessionsAreServedUntilClosed() throws SQLException {
+        assertTrue(bankService.openSession("alice", "wrong").isEmpty());
+        String token = bankService.openSession("alice", "secret").get();
+
+        Optional<User> user = bankService.getSessionUser(token);
+        assertEquals("alice", user.get().getId());
+        assertEquals("client", user.get().getRole());
+        assertNull(user.get().getPassword());
+        assertTrue(bankService.getSessionUser("forged").isEmpty());
+
+        bankService.closeSession(token);
+        assertTrue(bankService.getSessionUser(token).isEmpty());
+    }
+
+    @Test
+    void testUserChangesEndSessions() throws SQLException {
+        String first = bankService.openSession("alice", "secret").get();
+        String second = bankService.openSession("alice", "secret").get();
+        bankService.updateUser(new User("alice", "changed", "client"));
+        assertTrue(bankService.getSessionUser(first).isEmpty());
+        assertTrue(bankService.getSessionUser(second).isEmpty());
+        assertTrue(bankService.openSession("alice", "secret").isEmpty());
+
+        String third = bankService.openSession("alice", "changed").get();
+        bankService.removeUser("alice");
+        assertTrue(bankService.getSessionUser(third).isEmpty());
+        assertTrue(bankService.openSession("alice", "changed").isEmpty());
+    }
+
+    @Test
+    void testSessionsExpire() throws Exception {
+        bankService.disconnect();
+        BankConfig config = newConfig(1000);
+        config.setSessionTtlMillis(20);
+        bankService = new BankService(config);
+        String token = bankService.openSession("alice", "secret").get();
+        Thread.sleep(50);
+
+        assertTrue(bankService.getSessionUser(token).isEmpty());
+        assertEquals(1, bankService.getSessionStats().getExpirations());
+    }
+
+    @Test
+    void testUsersLeaveTheIndexWithTheirLastSession() {
+        SessionManager sessions = new SessionManager(10, 60000);
+        User alice = new User("alice", null, "client");
+        String first = sessions.issue(alice, sessions.generation("alice")).get();
+        String second = sessions.issue(alice, sessions.generation("alice")).get();
+        assertEquals(1, sessions.getUsersWithSessions());
+
+        sessions.close(first);
+        assertEquals(1, sessions.getUsersWithSessions());
+        sessions.close(second);
+        assertEquals(0, sessions.getUsersWithSessions());
+    }
+}
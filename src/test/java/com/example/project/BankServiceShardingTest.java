@@ -0,0 +1,234 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceShardingTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ShardedBankService bankService;
+
+    private ShardedBankService open() throws SQLException {
+        List<String> shardUrls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            shardUrls.add("jdbc:sqlite:" + tempDir.resolve("shard-" + i + ".db"));
+        }
+        return new ShardedBankService(new BankConfig(), "jdbc:sqlite:" + tempDir.resolve("catalog.db"), shardUrls);
+    }
+
+    // Two account ids that hash to different shards
+    private String[] accountsOnDifferentShards() {
+        String first = "account0";
+        for (int i = 1; ; i++) {
+            String second = "account" + i;
+            if (bankService.shardOf(second) != bankService.shardOf(first)) {
+                return new String[]{first, second};
+            }
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        bankService = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testAccountsAreSpreadAndMerged() throws SQLException {
+        bankService.addUser(new User("alice", "password", "client"));
+        for (int i = 0; i < 20; i++) {
+            bankService.addAccount(new Account("account" + i, 1000, "alice"));
+        }
+        assertTrue(bankService.authenticateUser("alice", "password"));
+        List<Account> accounts = bankService.getAccountsForUser("alice");
+        assertEquals(20, accounts.size());
+        assertEquals("account0", accounts.get(0).getAccountId());
+        long shardsUsed = accounts.stream().map(account -> bankService.shardOf(account.getAccountId())).distinct().count();
+        assertTrue(shardsUsed > 1);
+
+        bankService.depositCheck("check", "account7", 250);
+        bankService.validateCheck("check");
+        assertEquals(1250, bankService.findAccount("account7").get().getBalance());
+        assertEquals(20250, bankService.getTotalBalanceForUser("alice"));
+        assertThrows(SQLException.class, () -> bankService.validateCheck("check"));
+    }
+
+    @Test
+    void testCrossShardTransfers() throws SQLException {
+        String[] ids = accountsOnDifferentShards();
+        bankService.addAccount(new Account(ids[0], 1000, "alice"));
+        bankService.addAccount(new Account(ids[1], 0, "alice"));
+
+        bankService.transferAmount(ids[0], ids[1], 400);
+        assertEquals(600, bankService.findAccount(ids[0]).get().getBalance());
+        assertEquals(400, bankService.findAccount(ids[1]).get().getBalance());
+
+        // Insufficient funds and a missing target both leave the balances untouched
+        assertThrows(InsufficientFundsException.class, () -> bankService.transferAmount(ids[0], ids[1], 5000));
+        assertThrows(SQLException.class, () -> bankService.transferAmount(ids[0], "missing", 100));
+        assertThrows(SQLException.class, () -> bankService.transferAmount(ids[0], ids[1], -100));
+        assertThrows(SQLException.class, () -> bankService.transferAmount(ids[0], ids[1], 0));
+        assertEquals(600, bankService.findAccount(ids[0]).get().getBalance());
+        assertEquals(400, bankService.findAccount(ids[1]).get().getBalance());
+    }
+
+    @Test
+    void testConcurrentTransfersConserveMoney() throws Exception {
+        for (int i = 0; i < 8; i++) {
+            bankService.addAccount(new Account("account" + i, 10000, "alice"));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> transfers = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            String from = "account" + (i % 8);
+            String to = "account" + ((i * 3 + 1) % 8);
+            transfers.add(executor.submit(() -> {
+                bankService.transferAmount(from, to, 10);
+                return null;
+            }));
+        }
+        for (Future<?> transfer : transfers) {
+            transfer.get();
+        }
+        executor.shutdown();
+        assertEquals(80000, bankService.getAccountsForUser("alice").stream().mapToLong(Account::getBalance).sum());
+    }
+
+    @Test
+    void testRecoveryFinishesInterruptedTransfers() throws SQLException {
+        String[] ids = accountsOnDifferentShards();
+        bankService.addAccount(new Account(ids[0], 1000, "alice"));
+        bankService.addAccount(new Account(ids[1], 0, "alice"));
+        bankService.disconnect();
+
+        // Simulate two crashes: one after the commit point, one before it, both with both holds in place
+        BankService catalog = new BankService("jdbc:sqlite:" + tempDir.resolve("catalog.db"));
+        BankService source = new BankService("jdbc:sqlite:" + tempDir.resolve("shard-" + bankService.shardOf(ids[0]) + ".db"));
+        BankService target = new BankService("jdbc:sqlite:" + tempDir.resolve("shard-" + bankService.shardOf(ids[1]) + ".db"));
+        crashedTransfer(catalog, source, target, "committed", ids, 300, "COMMITTED");
+        crashedTransfer(catalog, source, target, "started", ids, 200, "STARTED");
+        catalog.disconnect();
+        source.disconnect();
+        target.disconnect();
+
+        bankService = open();
+        assertEquals(2, bankService.getRecoveredTransfers());
+        assertEquals(700, bankService.findAccount(ids[0]).get().getBalance());
+        assertEquals(300, bankService.findAccount(ids[1]).get().getBalance());
+    }
+
+    @Test
+    void testCommittedTransferSettlesDespiteAFailedSettle() throws Exception {
+        String[] ids = accountsOnDifferentShards();
+        bankService.addAccount(new Account(ids[0], 1000, "alice"));
+        bankService.addAccount(new Account(ids[1], 0, "alice"));
+        String targetUrl = "jdbc:sqlite:" + tempDir.resolve("shard-" + bankService.shardOf(ids[1]) + ".db");
+        // Dropping the credit hold on the target fails while settle_blocked holds a row
+        try (Connection conn = DriverManager.getConnection(targetUrl); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE settle_blocked (blocked INTEGER)");
+            stmt.executeUpdate("INSERT INTO settle_blocked VALUES (1)");
+            stmt.executeUpdate("CREATE TRIGGER block_settle BEFORE DELETE ON transfer_holds "
+                    + "WHEN EXISTS (SELECT 1 FROM settle_blocked) BEGIN SELECT RAISE(ABORT, 'settle blocked'); END");
+        }
+
+        bankService.transferAmount(ids[0], ids[1], 400);
+        assertEquals(600, bankService.findAccount(ids[0]).get().getBalance());
+        assertEquals(0, bankService.findAccount(ids[1]).get().getBalance());
+
+        try (Connection conn = DriverManager.getConnection(targetUrl); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM settle_blocked");
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (bankService.findAccount(ids[1]).get().getBalance() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(400, bankService.findAccount(ids[1]).get().getBalance());
+        assertEquals(600, bankService.findAccount(ids[0]).get().getBalance());
+    }
+
+    @Test
+    void testTransferFailingToCommitIsRefunded() throws SQLException {
+        String[] ids = accountsOnDifferentShards();
+        bankService.addAccount(new Account(ids[0], 1000, "alice"));
+        bankService.addAccount(new Account(ids[1], 0, "alice"));
+        String catalogUrl = "jdbc:sqlite:" + tempDir.resolve("catalog.db");
+        try (Connection conn = DriverManager.getConnection(catalogUrl); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TRIGGER block_commit BEFORE UPDATE ON transfer_log "
+                    + "BEGIN SELECT RAISE(ABORT, 'commit blocked'); END");
+        }
+
+        assertThrows(SQLException.class, () -> bankService.transferAmount(ids[0], ids[1], 400));
+        assertEquals(1000, bankService.findAccount(ids[0]).get().getBalance());
+        assertEquals(0, bankService.findAccount(ids[1]).get().getBalance());
+        bankService.disconnect();
+        bankService = open();
+        assertEquals(0, bankService.getRecoveredTransfers());
+        assertEquals(1000, bankService.findAccount(ids[0]).get().getBalance());
+    }
+
+    @Test
+    void testFailedRefundIsRetriedInTheBackground() throws Exception {
+        String[] ids = accountsOnDifferentShards();
+        bankService.addAccount(new Account(ids[0], 1000, "alice"));
+        String sourceUrl = "jdbc:sqlite:" + tempDir.resolve("shard-" + bankService.shardOf(ids[0]) + ".db");
+        // Refunding the debit hold on the source fails while refund_blocked holds a row
+        try (Connection conn = DriverManager.getConnection(sourceUrl); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE refund_blocked (blocked INTEGER)");
+            stmt.executeUpdate("INSERT INTO refund_blocked VALUES (1)");
+            stmt.executeUpdate("CREATE TRIGGER block_refund BEFORE DELETE ON transfer_holds "
+                    + "WHEN EXISTS (SELECT 1 FROM refund_blocked) BEGIN SELECT RAISE(ABORT, 'refund blocked'); END");
+        }
+
+        // The target does not exist, so the transfer fails after the source was debited
+        String missing = ids[1] + "-missing";
+        while (bankService.shardOf(missing) == bankService.shardOf(ids[0])) {
+            missing += "x";
+        }
+        String target = missing;
+        assertThrows(SQLException.class, () -> bankService.transferAmount(ids[0], target, 400));
+        assertEquals(600, bankService.findAccount(ids[0]).get().getBalance());
+
+        try (Connection conn = DriverManager.getConnection(sourceUrl); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM refund_blocked");
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (bankService.findAccount(ids[0]).get().getBalance() != 1000 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1000, bankService.findAccount(ids[0]).get().getBalance());
+    }
+
+    private void crashedTransfer(BankService catalog, BankService source, BankService target, String transferId,
+                                 String[] ids, long amount, String state) throws SQLException {
+        catalog.inWriteTransaction(conn -> conn.getConnection().createStatement().executeUpdate(
+                "INSERT INTO transfer_log VALUES ('" + transferId + "', '" + ids[0] + "', '" + ids[1] + "', "
+                        + amount + ", '" + state + "')"));
+        source.inWriteTransaction(conn -> {
+            conn.getConnection().createStatement().executeUpdate(
+                    "UPDATE accounts SET balance = balance - " + amount + " WHERE accountId = '" + ids[0] + "'");
+            return conn.getConnection().createStatement().executeUpdate(
+                    "INSERT INTO transfer_holds VALUES ('" + transferId + "', '" + ids[0] + "', " + -amount + ")");
+        });
+        target.inWriteTransaction(conn -> conn.getConnection().createStatement().executeUpdate(
+                "INSERT INTO transfer_holds VALUES ('" + transferId + "', '" + ids[1] + "', " + amount + ")"));
+    }
+}
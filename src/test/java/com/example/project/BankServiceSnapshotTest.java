@@ -0,0 +1,77 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testSnapshotIsPointInTime() throws SQLException {
+        bankService = new BankService("jdbc:sqlite:" + tempDir.resolve("snapshot.db"));
+        bankService.addUser(new User("alice", "password", "client"));
+        bankService.addAccount(new Account("first", 10000, "alice"));
+        bankService.addAccount(new Account("second", 2500, "alice"));
+        bankService.addAccount(new Account("third", 4000, "bob"));
+        bankService.depositCheck("check", "second", 300);
+
+        try (BankSnapshot snapshot = bankService.snapshot()) {
+            // Live writes go on while the snapshot is open and do not show up in it
+            bankService.depositAmount("first", 5000);
+            bankService.validateCheck("check");
+            assertEquals(15000, bankService.findAccount("first").get().getBalance());
+
+            assertEquals(10000, snapshot.findAccount("first").get().getBalance());
+            assertTrue(snapshot.findAccount("missing").isEmpty());
+            assertEquals("client", snapshot.findUser("alice").get().getRole());
+            assertEquals(List.of("first", "second"), snapshot.getAccountsForUser("alice").stream()
+                    .map(Account::getAccountId).collect(Collectors.toList()));
+            assertEquals(1, snapshot.getUnvalidatedChecksForAccount("second").size());
+
+            assertEquals(3, snapshot.getAccountCount());
+            assertEquals(16500, snapshot.getTotalBalance());
+            assertEquals(300, snapshot.getPendingCheckTotal());
+            assertEquals(12500L, snapshot.getTotalBalanceByOwner().get("alice"));
+            assertEquals("first", snapshot.getLargestAccounts(1).get(0).getAccountId());
+            assertTrue(snapshot.getSizeBytes() > 0);
+            assertTrue(snapshot.getCopyMillis() >= 0);
+        }
+    }
+
+    @Test
+    void testSnapshotIncludesLedgerBalances() throws SQLException {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("snapshot.db"));
+        config.setLedgerEnabled(true);
+        config.setLedgerFlushIntervalMillis(60_000);
+        bankService = new BankService(config);
+        bankService.addAccount(new Account("first", 10000, "alice"));
+        bankService.depositAmount("first", 700);
+
+        try (BankSnapshot snapshot = bankService.snapshot()) {
+            assertEquals(10700, snapshot.findAccount("first").get().getBalance());
+        }
+    }
+
+    @Test
+    void testInMemoryDatabaseCannotBeSnapshotted() {
+        bankService = new BankService("jdbc:sqlite::memory:");
+        assertThrows(SQLException.class, () -> bankService.snapshot());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceStatementCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRepeatedCallsHitTheCache() throws SQLException {
+        BankService bankService = new BankService("jdbc:sqlite:" + tempDir.resolve("cache.db"));
+        try {
+            bankService.addAccount(new Account("cacheAccount", 10000, "cacheUser"));
+            long missesBefore = bankService.getPoolMetrics().getStatementCacheMisses();
+            for (int i = 0; i < 50; i++) {
+                bankService.depositAmount("cacheAccount", 100);
+            }
+            PoolMetrics metrics = bankService.getPoolMetrics();
+            assertEquals(missesBefore + 1, metrics.getStatementCacheMisses());
+            assertTrue(metrics.getStatementCacheHits() >= 49);
+            assertEquals(15000, bankService.findAccount("cacheAccount").get().getBalance());
+        } finally {
+            bankService.disconnect();
+        }
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedStatement() throws SQLException {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("evict.db"));
+        config.setStatementCacheSize(2);
+        BankService bankService = new BankService(config);
+        try {
+            bankService.addAccount(new Account("evictAccount", 10000, "evictUser"));
+            bankService.depositAmount("evictAccount", 100);
+            bankService.withdrawAmount("evictAccount", 100);
+            assertTrue(bankService.getPoolMetrics().getStatementCacheEvictions() >= 1);
+            assertEquals(10000, bankService.findAccount("evictAccount").get().getBalance());
+        } finally {
+            bankService.disconnect();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceStreamingTest {
+
+    @TempDir
+    static Path tempDir;
+
+    private static BankService bankService;
+    private static final String OWNER_ID = "corporate";
+    private static final String MERCHANT_ID = "merchant";
+    private static final int ACCOUNT_COUNT = 250;
+
+    @BeforeAll
+    static void setup() throws SQLException {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("stream.db"));
+        config.setReaderPoolSize(2);
+        config.setStreamFetchSize(16);
+        bankService = new BankService(config);
+
+        List<Account> accounts = new ArrayList<>();
+        List<Check> checks = new ArrayList<>();
+        for (int i = 0; i < ACCOUNT_COUNT; i++) {
+            accounts.add(new Account(String.format("sub%04d", i), i, OWNER_ID));
+            checks.add(new Check(String.format("check%04d", i), 100, MERCHANT_ID, false));
+        }
+        accounts.add(new Account(MERCHANT_ID, 0, "other"));
+        bankService.addAccounts(accounts);
+        bankService.depositChecks(checks);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testStreamAccountsReleasesConnection() throws SQLException {
+        for (int round = 0; round < 5; round++) {
+            try (Stream<Account> accounts = bankService.streamAccountsForUser(OWNER_ID)) {
+                assertEquals(ACCOUNT_COUNT, accounts.count());
+            }
+        }
+        assertEquals(0, bankService.getPoolMetrics().getReadersInUse());
+
+        try (Stream<Check> checks = bankService.streamUnvalidatedChecksForAccount(MERCHANT_ID)) {
+            assertEquals(100L * ACCOUNT_COUNT, checks.mapToLong(Check::getAmount).sum());
+        }
+        assertEquals(0, bankService.getPoolMetrics().getReadersInUse());
+    }
+
+    @Test
+    void testKeysetPaginationVisitsEveryAccountOnce() throws SQLException {
+        List<String> seen = new ArrayList<>();
+        String after = null;
+        List<Account> page;
+        do {
+            page = bankService.getAccountsForUser(OWNER_ID, after, 40);
+            assertTrue(page.size() <= 40);
+            for (Account account : page) {
+                seen.add(account.getAccountId());
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getAccountId();
+            }
+        } while (!page.isEmpty());
+
+        assertEquals(ACCOUNT_COUNT, seen.size());
+        assertEquals(ACCOUNT_COUNT, seen.stream().distinct().count());
+        assertEquals("sub0000", seen.get(0));
+    }
+
+    @Test
+    void testCheckPages() throws SQLException {
+        List<Check> first = bankService.getUnvalidatedChecksForAccount(MERCHANT_ID, null, 100);
+        List<Check> second = bankService.getUnvalidatedChecksForAccount(MERCHANT_ID,
+                first.get(first.size() - 1).getCheckId(), 1000);
+        assertEquals(100, first.size());
+        assertEquals(ACCOUNT_COUNT - 100, second.size());
+        assertEquals("check0100", second.get(0).getCheckId());
+    }
+}
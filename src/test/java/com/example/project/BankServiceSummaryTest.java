@@ -0,0 +1,99 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceSummaryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BankService bankService;
+
+    private BankService newService(boolean ledgerEnabled) {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("summary.db"));
+        config.setLedgerEnabled(ledgerEnabled);
+        return new BankService(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.disconnect();
+    }
+
+    @Test
+    void testEveryMutationPathKeepsSummariesCurrent() throws SQLException {
+        bankService = newService(false);
+        bankService.addAccount(new Account("first", 10000, "alice"));
+        bankService.addAccount(new Account("second", 5000, "alice"));
+        bankService.addAccount(new Account("third", 2000, "bob"));
+        assertEquals(15000, bankService.getTotalBalanceForUser("alice"));
+
+        bankService.depositAmount("first", 500);
+        bankService.withdrawAmount("second", 1000);
+        bankService.transferAmount("first", "third", 2500);
+        assertEquals(12000, bankService.getTotalBalanceForUser("alice"));
+        assertEquals(4500, bankService.getTotalBalanceForUser("bob"));
+
+        bankService.depositCheck("check1", "second", 300);
+        bankService.depositCheck("check2", "second", 200);
+        assertEquals(500, bankService.getPendingCheckTotalForAccount("second"));
+        bankService.validateCheck("check1");
+        assertEquals(200, bankService.getPendingCheckTotalForAccount("second"));
+        assertEquals(12300, bankService.getTotalBalanceForUser("alice"));
+
+        // Moving an account to another owner moves its balance too
+        bankService.updateAccount(new Account("second", 4300, "bob"));
+        assertEquals(8000, bankService.getTotalBalanceForUser("alice"));
+        assertEquals(8800, bankService.getTotalBalanceForUser("bob"));
+
+        bankService.removeAccount("third");
+        assertEquals(4300, bankService.getTotalBalanceForUser("bob"));
+        bankService.depositAmounts(Map.of("first", 100L, "second", 100L));
+        bankService.validateAllPendingForAccount("second");
+        assertEquals(0, bankService.getPendingCheckTotalForAccount("second"));
+        assertEquals(8100, bankService.getTotalBalanceForUser("alice"));
+        assertEquals(4600, bankService.getTotalBalanceForUser("bob"));
+        assertEquals(0, bankService.getTotalBalanceForUser("nobody"));
+        assertTrue(bankService.verifySummaries().isEmpty());
+    }
+
+    @Test
+    void testLedgerChangesAreFlushedBeforeReading() throws SQLException {
+        bankService = newService(true);
+        bankService.addAccount(new Account("first", 10000, "alice"));
+        bankService.addAccount(new Account("second", 0, "alice"));
+        bankService.depositAmount("first", 700);
+        bankService.transferAmount("first", "second", 300);
+        assertEquals(10700, bankService.getTotalBalanceForUser("alice"));
+        assertTrue(bankService.verifySummaries().isEmpty());
+    }
+
+    @Test
+    void testVerifyDetectsDriftAndRebuildRepairsIt() throws SQLException {
+        bankService = newService(false);
+        bankService.addAccount(new Account("first", 10000, "alice"));
+        bankService.depositCheck("check", "first", 300);
+        bankService.inWriteTransaction(conn -> {
+            conn.prepare("UPDATE user_balances SET total = 1").executeUpdate();
+            return conn.prepare("DELETE FROM account_pending_checks").executeUpdate();
+        });
+
+        List<String> drift = bankService.verifySummaries();
+        assertEquals(2, drift.size());
+        assertEquals("user alice: summary 1, actual 10000", drift.get(0));
+
+        bankService.rebuildSummaries();
+        assertTrue(bankService.verifySummaries().isEmpty());
+        assertEquals(10000, bankService.getTotalBalanceForUser("alice"));
+        assertEquals(300, bankService.getPendingCheckTotalForAccount("first"));
+    }
+}
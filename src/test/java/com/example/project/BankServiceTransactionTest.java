@@ -16,7 +16,7 @@ public class BankServiceTransactionTest {
     private static BankService bankService;
     private static final String TEST_ACCOUNT_ID_1 = "testAccount1";
     private static final String TEST_ACCOUNT_ID_2 = "testAccount2";
-    private static final float INITIAL_BALANCE = 100f;
+    private static final long INITIAL_BALANCE = 10000;
     private static final String OWNER_ID = "testUser";
 
     @BeforeAll
@@ -37,32 +37,32 @@ public class BankServiceTransactionTest {
     @Test
     @Order(1)
     void testDepositAmount() throws SQLException {
-        bankService.depositAmount(TEST_ACCOUNT_ID_1, 50f);
+        bankService.depositAmount(TEST_ACCOUNT_ID_1, 5000);
         Optional<Account> account = bankService.findAccount(TEST_ACCOUNT_ID_1);
         assertTrue(account.isPresent());
-        assertEquals(150f, account.get().getBalance());
+        assertEquals(15000, account.get().getBalance());
     }
 
     @Test
     @Order(2)
     void testWithdrawAmount() throws SQLException {
-        bankService.withdrawAmount(TEST_ACCOUNT_ID_1, 30f);
+        bankService.withdrawAmount(TEST_ACCOUNT_ID_1, 3000);
         Optional<Account> account = bankService.findAccount(TEST_ACCOUNT_ID_1);
         assertTrue(account.isPresent());
-        assertEquals(120f, account.get().getBalance());
+        assertEquals(12000, account.get().getBalance());
     }
 
     @Test
     @Order(3)
     void testTransferAmount() throws SQLException {
-        bankService.transferAmount(TEST_ACCOUNT_ID_1, TEST_ACCOUNT_ID_2, 20f);
+        bankService.transferAmount(TEST_ACCOUNT_ID_1, TEST_ACCOUNT_ID_2, 2000);
         Optional<Account> account1 = bankService.findAccount(TEST_ACCOUNT_ID_1);
         Optional<Account> account2 = bankService.findAccount(TEST_ACCOUNT_ID_2);
 
         assertTrue(account1.isPresent());
         assertTrue(account2.isPresent());
-        assertEquals(100f, account1.get().getBalance());
-        assertEquals(120f, account2.get().getBalance());
+        assertEquals(10000, account1.get().getBalance());
+        assertEquals(12000, account2.get().getBalance());
     }
 
 
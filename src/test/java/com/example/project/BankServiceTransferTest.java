@@ -0,0 +1,125 @@
+package com.example.project;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServiceTransferTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String OWNER_ID = "transferUser";
+    private static final int ACCOUNT_COUNT = 4;
+    private static final long INITIAL_BALANCE = 10000;
+
+    private BankService newService(int busyTimeoutMillis) {
+        BankConfig config = new BankConfig();
+        config.setUrl("jdbc:sqlite:" + tempDir.resolve("transfer.db"));
+        config.setBusyTimeoutMillis(busyTimeoutMillis);
+        config.setMaxRetryAttempts(50);
+        return new BankService(config);
+    }
+
+    @Test
+    void testInsufficientFundsLeavesBalancesUntouched() throws SQLException {
+        BankService bankService = newService(5000);
+        try {
+            bankService.addAccount(new Account("from", INITIAL_BALANCE, OWNER_ID));
+            bankService.addAccount(new Account("to", INITIAL_BALANCE, OWNER_ID));
+            assertThrows(InsufficientFundsException.class, () -> bankService.transferAmount("from", "to", 50000));
+            assertEquals(INITIAL_BALANCE, bankService.findAccount("from").get().getBalance());
+            assertEquals(INITIAL_BALANCE, bankService.findAccount("to").get().getBalance());
+        } finally {
+            bankService.disconnect();
+        }
+    }
+
+    @Test
+    void testNonPositiveAmountsAreRejected() throws SQLException {
+        BankService bankService = newService(5000);
+        try {
+            bankService.addAccount(new Account("from", INITIAL_BALANCE, OWNER_ID));
+            bankService.addAccount(new Account("to", INITIAL_BALANCE, OWNER_ID));
+            assertThrows(SQLException.class, () -> bankService.transferAmount("from", "to", -1000));
+            assertThrows(SQLException.class, () -> bankService.transferAmount("from", "to", 0));
+            assertThrows(SQLException.class, () -> bankService.transferAmount("from", "to", -1000, "key"));
+            assertEquals(INITIAL_BALANCE, bankService.findAccount("from").get().getBalance());
+            assertEquals(INITIAL_BALANCE, bankService.findAccount("to").get().getBalance());
+            // The rejected request did not use up its key
+            assertTrue(bankService.transferAmount("from", "to", 1000, "key"));
+            assertEquals(INITIAL_BALANCE + 1000, bankService.findAccount("to").get().getBalance());
+        } finally {
+            bankService.disconnect();
+        }
+    }
+
+    @Test
+    void testMissingDestinationRollsBackDebit() throws SQLException {
+        BankService bankService = newService(5000);
+        try {
+            bankService.addAccount(new Account("from", INITIAL_BALANCE, OWNER_ID));
+            SQLException missing = assertThrows(SQLException.class,
+                    () -> bankService.transferAmount("from", "missing", 1000));
+            assertFalse(missing instanceof InsufficientFundsException);
+            missing = assertThrows(SQLException.class, () -> bankService.transferAmount("missing", "from", 1000));
+            assertFalse(missing instanceof InsufficientFundsException);
+            assertEquals(INITIAL_BALANCE, bankService.findAccount("from").get().getBalance());
+        } finally {
+            bankService.disconnect();
+        }
+    }
+
+    @Test
+    void testConcurrentTransfersConserveMoney() throws Exception {
+        // Two services on the same file compete for the SQLite lock, which exercises the retry policy
+        BankService first = newService(1);
+        BankService second = newService(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < ACCOUNT_COUNT; i++) {
+                first.addAccount(new Account("account" + i, INITIAL_BALANCE, OWNER_ID));
+            }
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                BankService service = i % 2 == 0 ? first : second;
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int from = random.nextInt(ACCOUNT_COUNT);
+                    int to = (from + 1 + random.nextInt(ACCOUNT_COUNT - 1)) % ACCOUNT_COUNT;
+                    try {
+                        service.transferAmount("account" + from, "account" + to, 1000 + random.nextInt(4000));
+                    } catch (SQLException e) {
+                        // Insufficient funds is an expected outcome
+                        assertTrue(e.getMessage().startsWith("Transfer cannot be completed"), e.getMessage());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            long total = 0;
+            for (Account account : first.getAccountsForUser(OWNER_ID)) {
+                assertTrue(account.getBalance() >= 0);
+                total += account.getBalance();
+            }
+            assertEquals(INITIAL_BALANCE * ACCOUNT_COUNT, total);
+        } finally {
+            executor.shutdown();
+            first.disconnect();
+            second.disconnect();
+        }
+    }
+}
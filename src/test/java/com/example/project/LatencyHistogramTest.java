@@ -0,0 +1,42 @@
+package com.example.project;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000, histogram.getMax());
+        assertEquals(50_000_000, histogram.getPercentile(50), 50_000_000 * 0.02);
+        assertEquals(99_000_000, histogram.getPercentile(99), 99_000_000 * 0.02);
+        assertEquals(99_900_000, histogram.getPercentile(99.9), 99_900_000 * 0.02);
+    }
+
+    @Test
+    void testBucketsAreContiguous() {
+        for (long value = 0; value < 1 << 16; value++) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.upperBoundOf(bucket) >= value);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.upperBoundOf(bucket - 1) < value);
+            }
+        }
+        assertTrue(LatencyHistogram.bucketOf(Long.MAX_VALUE) < (64 - 6) * 64);
+    }
+
+    @Test
+    void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+}